@@ -0,0 +1,34 @@
+package com.skillforge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors used by the AI question generation pipeline
+ */
+@Configuration
+public class AiGenerationConfig {
+
+    @Value("${app.ai.max-concurrent-chunks:3}")
+    private int maxConcurrentChunks;
+
+    @Value("${app.ai.chunk-queue-capacity:100}")
+    private int chunkQueueCapacity;
+
+    /**
+     * Runs individual generation chunks. The pool size is the upper bound on
+     * concurrent calls to the AI service from this node.
+     */
+    @Bean(name = "aiGenerationExecutor")
+    public ThreadPoolTaskExecutor aiGenerationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentChunks);
+        executor.setMaxPoolSize(maxConcurrentChunks);
+        executor.setQueueCapacity(chunkQueueCapacity);
+        executor.setThreadNamePrefix("ai-chunk-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
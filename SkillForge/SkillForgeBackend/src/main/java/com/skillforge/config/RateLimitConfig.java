@@ -0,0 +1,93 @@
+package com.skillforge.config;
+
+import com.skillforge.security.InMemoryRateLimitStore;
+import com.skillforge.security.RateLimitPolicy;
+import com.skillforge.security.RateLimitStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+
+import java.time.Duration;
+
+/**
+ * Per-route rate limit policies for the endpoints that are expensive or open to anyone
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    public InMemoryRateLimitStore rateLimitStore(MeterRegistry meterRegistry) {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore();
+        Gauge.builder("http.rate_limit.buckets", store, InMemoryRateLimitStore::size)
+                .description("Clients currently tracked by the in-memory rate limiter")
+                .register(meterRegistry);
+        return store;
+    }
+
+    @Bean
+    public RateLimitPolicy loginRateLimit(@Value("${app.rate-limit.login.limit:10}") int limit,
+                                          @Value("${app.rate-limit.login.period:1m}") Duration period) {
+        return new RateLimitPolicy("login",
+                new OrRequestMatcher(
+                        post("/api/auth/login"),
+                        post("/api/auth/change-password"),
+                        post("/api/auth/refresh")),
+                RateLimitPolicy.KeyType.ACCOUNT, limit, period);
+    }
+
+    /**
+     * Looser cap on the same routes per address alone, so one client cannot try
+     * many accounts at the per-account rate
+     */
+    @Bean
+    public RateLimitPolicy loginAddressRateLimit(@Value("${app.rate-limit.login-address.limit:100}") int limit,
+                                                 @Value("${app.rate-limit.login-address.period:1m}") Duration period) {
+        return new RateLimitPolicy("login-address",
+                new OrRequestMatcher(
+                        post("/api/auth/login"),
+                        post("/api/auth/change-password"),
+                        post("/api/auth/refresh")),
+                RateLimitPolicy.KeyType.IP, limit, period);
+    }
+
+    @Bean
+    public RateLimitPolicy registerRateLimit(@Value("${app.rate-limit.register.limit:5}") int limit,
+                                             @Value("${app.rate-limit.register.period:10m}") Duration period) {
+        return new RateLimitPolicy("register",
+                new OrRequestMatcher(post("/api/auth/register"), post("/api/contact")),
+                RateLimitPolicy.KeyType.IP, limit, period);
+    }
+
+    @Bean
+    public RateLimitPolicy submitRateLimit(@Value("${app.rate-limit.submit.limit:5}") int limit,
+                                           @Value("${app.rate-limit.submit.period:1m}") Duration period) {
+        return new RateLimitPolicy("submit",
+                new OrRequestMatcher(
+                        post("/api/exam-submissions/submit/*"),
+                        post("/api/students/exams/*/submit")),
+                RateLimitPolicy.KeyType.USER, limit, period);
+    }
+
+    @Bean
+    public RateLimitPolicy aiGenerationRateLimit(@Value("${app.rate-limit.ai.limit:10}") int limit,
+                                                 @Value("${app.rate-limit.ai.period:1m}") Duration period) {
+        return new RateLimitPolicy("ai-generation",
+                new OrRequestMatcher(
+                        post("/api/instructors/exams/*/ai-generate-preview"),
+                        post("/api/instructors/exams/*/ai-generate-stream"),
+                        post("/api/instructors/exams/*/ai-generate-save"),
+                        post("/api/instructors/ai-jobs")),
+                RateLimitPolicy.KeyType.USER, limit, period);
+    }
+
+    private static AntPathRequestMatcher post(String pattern) {
+        return new AntPathRequestMatcher(pattern, HttpMethod.POST.name());
+    }
+}
@@ -0,0 +1,57 @@
+package com.skillforge.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps read-only transactions from filling the second-level cache when a read
+ * replica is configured. Those transactions may read from the replica, which can
+ * trail the primary by up to max-lag-ms, and an entity or query result cached from
+ * it would then be served to primary-routed transactions (exam submit, results)
+ * until its region expires. With {@link CacheMode#GET} they still use what the
+ * cache holds but never put into it; the session's mode is restored afterwards,
+ * as it may outlive the transaction (open-in-view).
+ */
+public class ReplicaCacheModeJpaDialect extends HibernateJpaDialect {
+
+    private final boolean replicaConfigured;
+
+    public ReplicaCacheModeJpaDialect(boolean replicaConfigured) {
+        this.replicaConfigured = replicaConfigured;
+    }
+
+    private record ReadOnlyTransactionData(Object delegate, Session session, CacheMode previousCacheMode) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!replicaConfigured || !definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previous = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previous);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            if (readOnly.session().isOpen()) {
+                readOnly.session().setCacheMode(readOnly.previousCacheMode());
+            }
+            super.cleanupTransaction(readOnly.delegate());
+            return;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+}
@@ -0,0 +1,59 @@
+package com.skillforge.config;
+
+import com.skillforge.service.ReplicaLagMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends the connections of {@code @Transactional(readOnly = true)} work to the
+ * read replica while {@link ReplicaLagMonitor} reports it is keeping up, and
+ * everything else (writes, reads in a read-write transaction, reads outside a
+ * transaction) to the primary. Without a replica it always picks the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final boolean hasReplica;
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor,
+                                    MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        if (replica != null) {
+            targets.put(Target.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.hasReplica = replica != null;
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.primaryConnections = Counter.builder("db.routing.connections")
+                .tag("target", "primary")
+                .description("Connections handed out by the routing DataSource, by target")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("db.routing.connections")
+                .tag("target", "replica")
+                .description("Connections handed out by the routing DataSource, by target")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (hasReplica && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replicaLagMonitor.isReplicaUsable()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+}
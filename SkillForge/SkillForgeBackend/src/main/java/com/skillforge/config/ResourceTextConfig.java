@@ -0,0 +1,34 @@
+package com.skillforge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for extracting searchable text from course resource PDFs
+ */
+@Configuration
+public class ResourceTextConfig {
+
+    @Value("${app.resources.text.workers:2}")
+    private int workers;
+
+    @Value("${app.resources.text.queue-capacity:50}")
+    private int queueCapacity;
+
+    /**
+     * PDF parsing is CPU and memory heavy, so the pool is small and its queue bounded;
+     * work that does not fit stays PENDING in the database and is picked up by the sweep.
+     */
+    @Bean(name = "resourceTextExecutor")
+    public ThreadPoolTaskExecutor resourceTextExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pdf-text-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -1,10 +1,24 @@
 package com.skillforge.controller;
 
 import com.skillforge.entity.*;
+import com.skillforge.exception.InvalidRequestException;
 import com.skillforge.repository.*;
+import com.skillforge.security.CourseAccessChangedEvent;
+import com.skillforge.security.UserPrincipalCache;
+import com.skillforge.service.AuthService;
+import com.skillforge.service.BlobStorageService;
+import com.skillforge.service.CourseService;
+import com.skillforge.service.ReferenceCacheService;
+import com.skillforge.service.ReplicaLagMonitor;
+import com.skillforge.service.StorageMigrationService;
+import com.skillforge.service.StorageQuotaService;
+import com.skillforge.service.StorageReconciler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -34,7 +48,38 @@ public class AdminController {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageMigrationService storageMigrationService;
+
+    @Autowired
+    private StorageReconciler storageReconciler;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private ReferenceCacheService referenceCacheService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private CourseService courseService;
+
     @GetMapping("/overview")
+    @Transactional(readOnly = true)
     public ResponseEntity<Map<String, Object>> getPlatformOverview(Authentication authentication) {
         long totalUsers = userRepository.count();
         long students = userRepository.countByRole(User.Role.STUDENT);
@@ -51,6 +96,7 @@ public class AdminController {
     }
 
     @GetMapping("/users")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<User>> getAllUsers(Authentication authentication) {
         return ResponseEntity.ok(userRepository.findAll());
     }
@@ -67,6 +113,9 @@ public class AdminController {
             User.Role newRole = User.Role.valueOf(request.get("role").toUpperCase());
             user.setRole(newRole);
             userRepository.save(user);
+            userPrincipalCache.evict(user.getEmail());
+            // Tokens carry the old role; make the user sign in again
+            authService.revokeAllSessions(user);
             return ResponseEntity.ok(Map.of("message", "User role updated successfully"));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid role"));
@@ -75,15 +124,16 @@ public class AdminController {
 
     @DeleteMapping("/users/{userId}")
     public ResponseEntity<Map<String, String>> deleteUser(@PathVariable Long userId, Authentication authentication) {
+        userRepository.findById(userId).ifPresent(authService::revokeAllSessions);
         userRepository.deleteById(userId);
+        userPrincipalCache.evictById(userId);
+        eventPublisher.publishEvent(CourseAccessChangedEvent.forUser(userId));
         return ResponseEntity.ok(Map.of("message", "User deleted successfully"));
     }
 
     @DeleteMapping("/courses/{courseId}")
     public ResponseEntity<Map<String, String>> deleteCourse(@PathVariable Long courseId, Authentication authentication) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new RuntimeException("Course not found"));
-        courseRepository.delete(course);
+        courseService.deleteCourseAsAdmin(courseId);
         return ResponseEntity.ok(Map.of("message", "Course deleted successfully"));
     }
 
@@ -92,6 +142,7 @@ public class AdminController {
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
         examRepository.delete(exam);
+        referenceCacheService.evictQuestions();
         return ResponseEntity.ok(Map.of("message", "Exam deleted successfully"));
     }
 
@@ -100,6 +151,7 @@ public class AdminController {
      * Returns comprehensive analytics including exams, courses, enrollments
      */
     @GetMapping("/statistics")
+    @Transactional(readOnly = true)
     public ResponseEntity<Map<String, Object>> getPlatformStatistics(Authentication authentication) {
         Map<String, Object> stats = new HashMap<>();
         
@@ -140,11 +192,101 @@ public class AdminController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Upload storage: bytes on disk versus bytes referenced, i.e. space saved by deduplication
+     */
+    @GetMapping("/storage")
+    public ResponseEntity<Map<String, Object>> getStorageReport(Authentication authentication) {
+        return ResponseEntity.ok(blobStorageService.getStorageReport());
+    }
+
+    /**
+     * Storage used per scope against its quota: the platform by default, or one course or user;
+     * plus the largest courses and users
+     */
+    @GetMapping("/storage/usage")
+    public ResponseEntity<Map<String, Object>> getStorageUsage(
+            @RequestParam(value = "courseId", required = false) Long courseId,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "top", defaultValue = "10") int top,
+            Authentication authentication) {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("global", storageQuotaService.describe(StorageUsage.Scope.GLOBAL, 0L));
+        if (courseId != null) {
+            usage.put("course", storageQuotaService.describe(StorageUsage.Scope.COURSE, courseId));
+        }
+        if (userId != null) {
+            usage.put("user", storageQuotaService.describe(StorageUsage.Scope.USER, userId));
+        }
+        usage.put("largest", storageQuotaService.describeLargest(Math.max(1, Math.min(top, 100))));
+        return ResponseEntity.ok(usage);
+    }
+
+    /**
+     * Recompute the storage counters from the tables (repair after manual changes)
+     */
+    @PostMapping("/storage/usage/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildStorageUsage(Authentication authentication) {
+        return ResponseEntity.ok(storageQuotaService.rebuild());
+    }
+
+    /**
+     * Move up to {@code limit} existing files into the sharded blob layout; rerun until "complete"
+     */
+    @PostMapping("/storage/migrate")
+    public ResponseEntity<Map<String, Object>> migrateStorage(
+            @RequestParam(value = "limit", defaultValue = "500") int limit,
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(storageMigrationService.migrate(Math.max(1, limit), dryRun));
+        } catch (InvalidRequestException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Migration interrupted"));
+        }
+    }
+
+    /**
+     * Progress and results of the background orphan-file reconciler
+     */
+    @GetMapping("/storage/reconciliation")
+    public ResponseEntity<Map<String, Object>> getReconciliationReport(Authentication authentication) {
+        return ResponseEntity.ok(storageReconciler.getReport());
+    }
+
+    /**
+     * Second-level cache hits, misses and puts per region on this node
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheReport(Authentication authentication) {
+        return ResponseEntity.ok(referenceCacheService.getReport());
+    }
+
+    /**
+     * Read replica routing on this node: whether read-only transactions use it, and its lag
+     */
+    @GetMapping("/database/replica")
+    public ResponseEntity<Map<String, Object>> getReplicaStatus(Authentication authentication) {
+        return ResponseEntity.ok(replicaLagMonitor.getStatus());
+    }
+
+    /**
+     * Empty the second-level cache on this node (after editing the tables by hand)
+     */
+    @PostMapping("/cache/evict")
+    public ResponseEntity<Map<String, String>> evictCache(Authentication authentication) {
+        referenceCacheService.evictAll();
+        return ResponseEntity.ok(Map.of("message", "Cache evicted"));
+    }
+
     /**
      * NEW ENDPOINT: Get exam analytics
      * Returns detailed exam performance data
      */
     @GetMapping("/exam-analytics")
+    @Transactional(readOnly = true)
     public ResponseEntity<Map<String, Object>> getExamAnalytics(Authentication authentication) {
         Map<String, Object> analytics = new HashMap<>();
         
@@ -198,6 +340,7 @@ public class AdminController {
      * Returns latest exam attempts and enrollments
      */
     @GetMapping("/recent-activity")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<Map<String, Object>>> getRecentActivity(Authentication authentication) {
         List<Map<String, Object>> activities = new ArrayList<>();
         
@@ -246,6 +389,7 @@ public class AdminController {
     }
 
     @GetMapping("/courses")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<Map<String, Object>>> getAllCourses(Authentication authentication) {
         List<Course> courses = courseRepository.findAll();
         
@@ -270,6 +414,7 @@ public class AdminController {
     }
 
     @GetMapping("/exams")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<Map<String, Object>>> getAllExams(Authentication authentication) {
         List<Exam> exams = examRepository.findAll();
         
@@ -302,6 +447,7 @@ public class AdminController {
      * Returns enrollment and completion data per course
      */
     @GetMapping("/course-performance")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<Map<String, Object>>> getCoursePerformance(Authentication authentication) {
         List<Course> courses = courseRepository.findAll();
         
@@ -0,0 +1,122 @@
+package com.skillforge.controller;
+
+import com.skillforge.dto.AiQuestionResponse;
+import com.skillforge.entity.AiGenerationJob;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.service.AiGenerationJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Queued AI question generation (Instructor only)
+ * Jobs are dispatched to the AI service at its rate limit; clients poll the job status
+ */
+@RestController
+@RequestMapping("/api/instructors/ai-jobs")
+@CrossOrigin(origins = "*")
+public class AiGenerationJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiGenerationJobController.class);
+
+    @Autowired
+    private AiGenerationJobService jobService;
+
+    // INSTRUCTOR: Queue a generation job
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submitJob(
+            @RequestBody Map<String, Object> requestData,
+            Authentication authentication) {
+        try {
+            Long examId = requestData.get("examId") != null
+                    ? Long.valueOf(requestData.get("examId").toString()) : null;
+            Integer numberOfQuestions = requestData.get("numberOfQuestions") != null
+                    ? ((Number) requestData.get("numberOfQuestions")).intValue() : null;
+
+            AiGenerationJob job = jobService.submitJob(
+                    authentication.getName(),
+                    examId,
+                    (String) requestData.get("courseName"),
+                    (String) requestData.get("topic"),
+                    (String) requestData.get("difficulty"),
+                    numberOfQuestions);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(toResponse(job, false));
+        } catch (InvalidRequestException e) {
+            logger.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            logger.error("Resource not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (ForbiddenAccessException e) {
+            logger.error("Access forbidden: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // INSTRUCTOR: Job status (includes questions once completed)
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(
+            @PathVariable Long jobId,
+            Authentication authentication) {
+        try {
+            AiGenerationJob job = jobService.getJobForInstructor(jobId, authentication.getName());
+            return ResponseEntity.ok(toResponse(job, true));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (ForbiddenAccessException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // INSTRUCTOR: List own jobs, newest first
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getMyJobs(Authentication authentication) {
+        List<Map<String, Object>> jobs = jobService.getJobsForInstructor(authentication.getName()).stream()
+                .map(job -> toResponse(job, false))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(jobs);
+    }
+
+    private Map<String, Object> toResponse(AiGenerationJob job, boolean includeQuestions) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", job.getId());
+        response.put("status", job.getStatus().name());
+        response.put("examId", job.getExamId());
+        response.put("courseName", job.getCourseName());
+        response.put("topic", job.getTopic());
+        response.put("difficulty", job.getDifficulty());
+        response.put("numberOfQuestions", job.getNumberOfQuestions());
+        response.put("attempts", job.getAttempts());
+        response.put("error", job.getErrorMessage());
+        response.put("createdAt", job.getCreatedAt());
+        response.put("startedAt", job.getStartedAt());
+        response.put("completedAt", job.getCompletedAt());
+        response.put("queuePosition", jobService.getQueuePosition(job));
+
+        if (includeQuestions && job.getStatus() == AiGenerationJob.JobStatus.COMPLETED) {
+            AiQuestionResponse result = jobService.readResult(job);
+            if (result != null) {
+                response.put("questions", result.getQuestions());
+                response.put("count", result.getCount());
+            }
+        }
+        return response;
+    }
+}
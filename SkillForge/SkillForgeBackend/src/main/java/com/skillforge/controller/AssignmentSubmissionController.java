@@ -0,0 +1,106 @@
+package com.skillforge.controller;
+
+import com.skillforge.entity.AssignmentSubmission;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
+import com.skillforge.security.SignedUrlService;
+import com.skillforge.service.SubmissionService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/assignments/{assignmentId}/submissions")
+@CrossOrigin(origins = "*")
+public class AssignmentSubmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentSubmissionController.class);
+
+    @Autowired
+    private SubmissionService submissionService;
+
+    @Autowired
+    private CourseAccessService courseAccessService;
+
+    @Autowired
+    private SignedUrlService signedUrlService;
+
+    /**
+     * Short-lived signed URL for one submission file (the student, the assignment's
+     * instructor or an admin)
+     */
+    @GetMapping("/{submissionId}/link")
+    public ResponseEntity<Map<String, Object>> getSubmissionLink(
+            @PathVariable Long assignmentId,
+            @PathVariable Long submissionId,
+            @RequestParam(value = "download", defaultValue = "false") boolean download,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            AssignmentSubmission submission = submissionService.getSubmissionById(submissionId);
+            if (!submission.getAssignment().getId().equals(assignmentId)) {
+                throw new ResourceNotFoundException("Submission not found with ID: " + submissionId);
+            }
+            if (!courseAccessService.canAccessSubmission(currentUser, submission)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+            }
+            String fileName = Paths.get(submission.getFilePath()).getFileName().toString();
+            String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+            String url = signedUrlService.sign(submission.getFilePath(), currentUser.getId(),
+                    "submission-" + submissionId + extension, download);
+            return ResponseEntity.ok(Map.of(
+                    "url", ServletUriComponentsBuilder.fromCurrentContextPath().toUriString() + url,
+                    "expiresInSeconds", signedUrlService.getTtlSeconds()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * INSTRUCTOR/ADMIN: Download every submission of the assignment as one ZIP,
+     * streamed to the client as it is built (no temp file, no Content-Length)
+     */
+    @GetMapping("/export")
+    public void exportSubmissions(
+            @PathVariable Long assignmentId,
+            @RequestParam(value = "ungradedOnly", defaultValue = "false") boolean ungradedOnly,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletResponse response) throws IOException {
+        SubmissionService.SubmissionExport export;
+        try {
+            export = submissionService.getSubmissionsForExport(assignmentId, currentUser, ungradedOnly);
+        } catch (ResourceNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        } catch (ForbiddenAccessException e) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, e.getMessage());
+            return;
+        }
+
+        logger.info("Exporting {} submission(s) of assignment {} for {}", export.submissions().size(), assignmentId, currentUser.getEmail());
+        String fileName = export.assignmentTitle() + (ungradedOnly ? " - ungraded" : "") + " - submissions.zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        try (OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024)) {
+            submissionService.writeSubmissionsZip(export, out);
+        }
+    }
+}
@@ -3,12 +3,19 @@ package com.skillforge.controller;
 import com.skillforge.dto.AuthRequest;
 import com.skillforge.dto.AuthResponse;
 import com.skillforge.dto.ChangePasswordRequest;
+import com.skillforge.dto.RefreshTokenRequest;
 import com.skillforge.dto.RegisterRequest;
+import com.skillforge.exception.InvalidTokenException;
+import com.skillforge.exception.ServiceBusyException;
 import com.skillforge.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -18,7 +25,12 @@ public class AuthController {
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
+        AuthResponse response;
+        try {
+            response = authService.register(request);
+        } catch (ServiceBusyException e) {
+            return busy(e);
+        }
         if (response.getToken() == null) {
             return ResponseEntity.badRequest().body(response);
         }
@@ -27,7 +39,12 @@ public class AuthController {
 
     @PostMapping("/change-password")
     public ResponseEntity<AuthResponse> changePassword(@RequestBody ChangePasswordRequest request, @RequestParam String email) {
-        AuthResponse response = authService.changePassword(email, request);
+        AuthResponse response;
+        try {
+            response = authService.changePassword(email, request);
+        } catch (ServiceBusyException e) {
+            return busy(e);
+        }
         if (response.getToken() == null) {
             return ResponseEntity.badRequest().body(response);
         }
@@ -36,11 +53,41 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        AuthResponse response = authService.login(request);
+        AuthResponse response;
+        try {
+            response = authService.login(request);
+        } catch (ServiceBusyException e) {
+            return busy(e);
+        }
         if (response.getToken() == null) {
             return ResponseEntity.badRequest().body(response);
         }
         return ResponseEntity.ok(response);
     }
-}
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+        } catch (InvalidTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new AuthResponse(null, null, null, null, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, String>> logout(
+            @RequestBody(required = false) RefreshTokenRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorizationHeader) {
+        String accessToken = authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                ? authorizationHeader.substring(7) : null;
+        authService.logout(request != null ? request.getRefreshToken() : null, accessToken);
+        return ResponseEntity.ok(Map.of("message", "Logged out"));
+    }
+
+    private ResponseEntity<AuthResponse> busy(ServiceBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new AuthResponse(null, null, null, null, e.getMessage()));
+    }
+}
@@ -5,23 +5,35 @@ import com.skillforge.entity.User;
 import com.skillforge.exception.ForbiddenAccessException;
 import com.skillforge.exception.InvalidRequestException;
 import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.exception.ServiceBusyException;
+import com.skillforge.exception.StorageQuotaExceededException;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
+import com.skillforge.security.SignedUrlService;
 import com.skillforge.service.CourseResourceService;
+import com.skillforge.service.FileStreamingService;
+import com.skillforge.service.ResourcePreviewService;
+import com.skillforge.service.ResourceSearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +50,21 @@ public class CourseResourceController {
     @Autowired
     private CourseResourceService courseResourceService;
 
+    @Autowired
+    private CourseAccessService courseAccessService;
+
+    @Autowired
+    private FileStreamingService fileStreamingService;
+
+    @Autowired
+    private SignedUrlService signedUrlService;
+
+    @Autowired
+    private ResourceSearchService resourceSearchService;
+
+    @Autowired
+    private ResourcePreviewService resourcePreviewService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -67,6 +94,59 @@ public class CourseResourceController {
             logger.error("Invalid request: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", e.getMessage()));
+        } catch (StorageQuotaExceededException e) {
+            logger.warn("Upload refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            logger.error("Resource not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (ForbiddenAccessException e) {
+            logger.error("Access forbidden: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error uploading resource: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to upload file: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Unexpected error: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "An unexpected error occurred"));
+        }
+    }
+
+    // INSTRUCTOR: Upload PDF for own course as the raw request body, streamed straight to storage
+    @PostMapping(value = "/course/{courseId}/upload-stream", consumes = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadResourceStream(
+            @PathVariable Long courseId,
+            @RequestParam("title") String title,
+            HttpServletRequest request,
+            Authentication authentication) {
+        try {
+            logger.info("Upload request for course ID: {} by user: {}", courseId, authentication.getName());
+
+            CourseResource resource = courseResourceService.uploadResource(
+                    courseId, title, request.getInputStream(), request.getContentLengthLong(), authentication.getName());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", resource.getId());
+            response.put("title", resource.getTitle());
+            response.put("courseId", resource.getCourse().getId());
+            response.put("fileSize", resource.getFileSize());
+            response.put("createdAt", resource.getCreatedAt());
+            response.put("uploadedBy", resource.getUploadedBy().getName());
+
+            return ResponseEntity.ok(response);
+        } catch (InvalidRequestException e) {
+            logger.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (StorageQuotaExceededException e) {
+            logger.warn("Upload refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Map.of("error", e.getMessage()));
         } catch (ResourceNotFoundException e) {
             logger.error("Resource not found: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -135,73 +215,161 @@ public class CourseResourceController {
 
     // ALL AUTHENTICATED: Stream PDF (with access control)
     @GetMapping("/{resourceId}/view")
-    public ResponseEntity<Resource> viewResource(
+    public void viewResource(
             @PathVariable Long resourceId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         try {
-            logger.info("View request for resource ID: {} by user: {}", resourceId, authentication.getName());
-
-            // Check if user can access this resource
-            if (!courseResourceService.canAccessResource(resourceId, authentication.getName())) {
-                logger.warn("User {} denied access to view resource {}", authentication.getName(), resourceId);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
+            logger.info("View request for resource ID: {} by user: {}", resourceId, currentUser.getEmail());
 
+            // One lookup for the resource; the course access verdict is cached
             CourseResource resource = courseResourceService.getResourceById(resourceId);
-            Path filePath = Paths.get(resource.getFilePath());
-            Resource fileResource = new UrlResource(filePath.toUri());
-
-            if (fileResource.exists() && fileResource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_PDF)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getTitle() + ".pdf\"")
-                        .body(fileResource);
-            } else {
-                logger.error("File not found or not readable: {}", filePath);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            if (!courseAccessService.canAccessResource(currentUser, resource)) {
+                logger.warn("User {} denied access to view resource {}", currentUser.getEmail(), resourceId);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
             }
-        } catch (ResourceNotFoundException e) {
+
+            fileStreamingService.serve(request, response, Paths.get(resource.getFilePath()),
+                    courseResourceService.getContentHash(resource), MediaType.APPLICATION_PDF_VALUE,
+                    ContentDisposition.inline().filename(resource.getTitle() + ".pdf", StandardCharsets.UTF_8).build().toString(),
+                    "resource");
+        } catch (ResourceNotFoundException | NoSuchFileException e) {
             logger.error("Resource not found: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         } catch (Exception e) {
             logger.error("Error viewing resource: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
         }
     }
 
     // ALL AUTHENTICATED: Download PDF (with access control)
     @GetMapping("/{resourceId}/download")
-    public ResponseEntity<Resource> downloadResource(
+    public void downloadResource(
             @PathVariable Long resourceId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         try {
-            logger.info("Download request for resource ID: {} by user: {}", resourceId, authentication.getName());
+            logger.info("Download request for resource ID: {} by user: {}", resourceId, currentUser.getEmail());
 
-            // Check if user can access this resource
-            if (!courseResourceService.canAccessResource(resourceId, authentication.getName())) {
-                logger.warn("User {} denied access to download resource {}", authentication.getName(), resourceId);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            // One lookup for the resource; the course access verdict is cached
+            CourseResource resource = courseResourceService.getResourceById(resourceId);
+            if (!courseAccessService.canAccessResource(currentUser, resource)) {
+                logger.warn("User {} denied access to download resource {}", currentUser.getEmail(), resourceId);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+
+            fileStreamingService.serve(request, response, Paths.get(resource.getFilePath()),
+                    courseResourceService.getContentHash(resource), MediaType.APPLICATION_PDF_VALUE,
+                    ContentDisposition.attachment().filename(resource.getTitle() + ".pdf", StandardCharsets.UTF_8).build().toString(),
+                    "resource");
+        } catch (ResourceNotFoundException | NoSuchFileException e) {
+            logger.error("Resource not found: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } catch (Exception e) {
+            logger.error("Error downloading resource: {}", e.getMessage(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             }
+        }
+    }
+
+    // ALL AUTHENTICATED: First-page thumbnail (JPEG)
+    @GetMapping("/{resourceId}/thumbnail")
+    public void getThumbnail(
+            @PathVariable Long resourceId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        servePreview(resourceId, null, 0, currentUser, request, response);
+    }
 
+    // ALL AUTHENTICATED: One page rendered as a JPEG about `width` pixels wide
+    @GetMapping("/{resourceId}/pages/{page}")
+    public void getPage(
+            @PathVariable Long resourceId,
+            @PathVariable int page,
+            @RequestParam(value = "width", defaultValue = "800") int width,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        servePreview(resourceId, page, width, currentUser, request, response);
+    }
+
+    /**
+     * @param page null for the thumbnail
+     */
+    private void servePreview(Long resourceId, Integer page, int width, AuthenticatedUser currentUser,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
             CourseResource resource = courseResourceService.getResourceById(resourceId);
-            Path filePath = Paths.get(resource.getFilePath());
-            Resource fileResource = new UrlResource(filePath.toUri());
-
-            if (fileResource.exists() && fileResource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_PDF)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getTitle() + ".pdf\"")
-                        .body(fileResource);
-            } else {
-                logger.error("File not found or not readable: {}", filePath);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            if (!courseAccessService.canAccessResource(currentUser, resource)) {
+                logger.warn("User {} denied access to preview resource {}", currentUser.getEmail(), resourceId);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
             }
-        } catch (ResourceNotFoundException e) {
+
+            ResourcePreviewService.Preview preview = page == null
+                    ? resourcePreviewService.thumbnail(resource)
+                    : resourcePreviewService.page(resource, page, width);
+            fileStreamingService.serve(request, response, preview.file(), preview.entityTag(),
+                    MediaType.IMAGE_JPEG_VALUE, null, "preview");
+        } catch (InvalidRequestException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        } catch (ServiceBusyException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (ResourceNotFoundException | NoSuchFileException e) {
             logger.error("Resource not found: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         } catch (Exception e) {
-            logger.error("Error downloading resource: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            logger.error("Error rendering preview of resource {}: {}", resourceId, e.getMessage(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    // ALL AUTHENTICATED: Full-text search of resource PDFs in the caller's courses
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchResources(
+            @RequestParam("q") String query,
+            @RequestParam(value = "courseId", required = false) Long courseId,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            List<Map<String, Object>> results = resourceSearchService.search(
+                    currentUser, query, courseId, Math.max(1, Math.min(limit, 50)));
+            return ResponseEntity.ok(Map.of("query", query, "results", results));
+        } catch (InvalidRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (ForbiddenAccessException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ALL AUTHENTICATED: Short-lived signed URL for the PDF, for repeat and range requests without auth
+    @GetMapping("/{resourceId}/link")
+    public ResponseEntity<Map<String, Object>> getResourceLink(
+            @PathVariable Long resourceId,
+            @RequestParam(value = "download", defaultValue = "false") boolean download,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            CourseResource resource = courseResourceService.getResourceById(resourceId);
+            if (!courseAccessService.canAccessResource(currentUser, resource)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+            }
+            String url = signedUrlService.sign(resource.getFilePath(), currentUser.getId(), resource.getTitle() + ".pdf", download);
+            return ResponseEntity.ok(Map.of(
+                    "url", ServletUriComponentsBuilder.fromCurrentContextPath().toUriString() + url,
+                    "expiresInSeconds", signedUrlService.getTtlSeconds()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
         }
     }
 
@@ -2,10 +2,13 @@ package com.skillforge.controller;
 
 import com.skillforge.entity.*;
 import com.skillforge.repository.*;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.service.AppMetrics;
 import com.skillforge.service.ExamService;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -21,6 +24,9 @@ public class ExamSubmissionController {
     @Autowired
     private ExamService examService;
 
+    @Autowired
+    private AppMetrics appMetrics;
+
     @Autowired
     private ExamRepository examRepository;
 
@@ -39,11 +45,9 @@ public class ExamSubmissionController {
     @GetMapping("/start/{examId}")
     public ResponseEntity<Map<String, Object>> startExam(
             @PathVariable Long examId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -95,54 +99,59 @@ public class ExamSubmissionController {
     public ResponseEntity<Map<String, Object>> submitExam(
             @PathVariable Long examId,
             @RequestBody Map<String, Object> submissionData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        Timer.Sample submitSample = appMetrics.startTimer();
+        String outcome = "error";
+        try {
+            User student = userRepository.getReferenceById(currentUser.getId());
 
-        Exam exam = examRepository.findById(examId)
-                .orElseThrow(() -> new RuntimeException("Exam not found"));
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new RuntimeException("Exam not found"));
 
-        // Verify student is enrolled
-        if (!examService.isStudentEnrolled(student, exam)) {
-            throw new RuntimeException("You are not enrolled in this course");
-        }
+            // Verify student is enrolled
+            if (!examService.isStudentEnrolled(student, exam)) {
+                throw new RuntimeException("You are not enrolled in this course");
+            }
 
-        // Check if student can attempt
-        if (!examService.canStudentAttemptExam(student, exam)) {
-            throw new RuntimeException("Maximum attempts reached for this exam");
-        }
+            // Check if student can attempt
+            if (!examService.canStudentAttemptExam(student, exam)) {
+                throw new RuntimeException("Maximum attempts reached for this exam");
+            }
 
-        // Parse answers: { "questionId": "selectedOption", ... }
-        @SuppressWarnings("unchecked")
-        Map<String, String> answersRaw = (Map<String, String>) submissionData.get("answers");
-        Map<Long, String> answers = new HashMap<>();
-        if (answersRaw != null) {
-            for (Map.Entry<String, String> entry : answersRaw.entrySet()) {
-                answers.put(Long.valueOf(entry.getKey()), entry.getValue());
+            // Parse answers: { "questionId": "selectedOption", ... }
+            @SuppressWarnings("unchecked")
+            Map<String, String> answersRaw = (Map<String, String>) submissionData.get("answers");
+            Map<Long, String> answers = new HashMap<>();
+            if (answersRaw != null) {
+                for (Map.Entry<String, String> entry : answersRaw.entrySet()) {
+                    answers.put(Long.valueOf(entry.getKey()), entry.getValue());
+                }
             }
-        }
 
-        Integer timeTaken = submissionData.get("timeTakenMinutes") != null 
-            ? Integer.valueOf(submissionData.get("timeTakenMinutes").toString())
-            : exam.getDurationMinutes();
-
-        // Auto-evaluate and save
-        ExamAttempt savedAttempt = examService.evaluateAndSaveAttempt(exam, student, answers, timeTaken);
-
-        // Prepare response
-        Map<String, Object> result = new HashMap<>();
-        result.put("attemptId", savedAttempt.getId());
-        result.put("score", savedAttempt.getScore());
-        result.put("percentage", savedAttempt.getPercentage());
-        result.put("correctAnswers", savedAttempt.getCorrectAnswers());
-        result.put("wrongAnswers", savedAttempt.getWrongAnswers());
-        result.put("totalQuestions", savedAttempt.getTotalQuestions());
-        result.put("timeTaken", savedAttempt.getTimeTakenMinutes());
-        result.put("attemptedAt", savedAttempt.getAttemptedAt());
-
-        return ResponseEntity.ok(result);
+            Integer timeTaken = submissionData.get("timeTakenMinutes") != null 
+                ? Integer.valueOf(submissionData.get("timeTakenMinutes").toString())
+                : exam.getDurationMinutes();
+
+            // Auto-evaluate and save
+            ExamAttempt savedAttempt = examService.evaluateAndSaveAttempt(exam, student, answers, timeTaken);
+
+            // Prepare response
+            Map<String, Object> result = new HashMap<>();
+            result.put("attemptId", savedAttempt.getId());
+            result.put("score", savedAttempt.getScore());
+            result.put("percentage", savedAttempt.getPercentage());
+            result.put("correctAnswers", savedAttempt.getCorrectAnswers());
+            result.put("wrongAnswers", savedAttempt.getWrongAnswers());
+            result.put("totalQuestions", savedAttempt.getTotalQuestions());
+            result.put("timeTaken", savedAttempt.getTimeTakenMinutes());
+            result.put("attemptedAt", savedAttempt.getAttemptedAt());
+
+            outcome = "success";
+            return ResponseEntity.ok(result);
+        } finally {
+            appMetrics.recordSubmission(submitSample, outcome);
+        }
     }
 
     /**
@@ -151,11 +160,9 @@ public class ExamSubmissionController {
     @GetMapping("/results/{attemptId}")
     public ResponseEntity<Map<String, Object>> getAttemptResults(
             @PathVariable Long attemptId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         ExamAttempt attempt = examRepository.findById(attemptId)
                 .map(exam -> exam.getAttempts().stream()
@@ -1,11 +1,11 @@
 package com.skillforge.controller;
 
+import com.skillforge.dto.AiGeneratedQuestion;
 import com.skillforge.dto.AiQuestionResponse;
 import com.skillforge.entity.Batch;
 import com.skillforge.entity.Course;
 import com.skillforge.entity.Exam;
 import com.skillforge.entity.ExamAttempt;
-import com.skillforge.entity.Question;
 import com.skillforge.entity.User;
 import com.skillforge.repository.BatchRepository;
 import com.skillforge.repository.CourseRepository;
@@ -13,22 +13,41 @@ import com.skillforge.repository.ExamRepository;
 import com.skillforge.repository.ExamAttemptRepository;
 import com.skillforge.repository.QuestionRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
 import com.skillforge.service.AiQuestionService;
 import com.skillforge.service.CourseService;
+import com.skillforge.service.QuestionPoolService;
+import com.skillforge.service.ReferenceCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/instructors")
 public class InstructorController {
 
+    private static final Logger logger = LoggerFactory.getLogger(InstructorController.class);
+
+    private static final int MAX_QUESTIONS = 100;
+    private static final String INVALID_QUESTION_COUNT = "Number of questions must be between 1 and " + MAX_QUESTIONS;
+
     @Autowired
     private CourseService courseService;
 
@@ -53,25 +72,31 @@ public class InstructorController {
     @Autowired
     private AiQuestionService aiQuestionService;
 
-    @GetMapping("/me")
-    public ResponseEntity<Map<String, Object>> getInstructorProfile(Authentication authentication) {
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+    @Autowired
+    private QuestionPoolService questionPoolService;
+
+    @Autowired
+    private ReferenceCacheService referenceCacheService;
 
+    @Value("${app.ai.stream-timeout-ms:600000}")
+    private long aiStreamTimeoutMs;
+
+    @GetMapping("/me")
+    public ResponseEntity<Map<String, Object>> getInstructorProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         Map<String, Object> profile = new HashMap<>();
-        profile.put("id", instructor.getId());
-        profile.put("name", instructor.getName());
-        profile.put("email", instructor.getEmail());
-        profile.put("role", instructor.getRole().name());
+        profile.put("id", currentUser.getId());
+        profile.put("name", currentUser.getDisplayName());
+        profile.put("email", currentUser.getEmail());
+        profile.put("role", currentUser.getRole().name());
 
         return ResponseEntity.ok(profile);
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<Map<String, Object>> getDashboard(Authentication authentication) {
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getDashboard(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        // Loaded rather than referenced: the batches below serialize their instructor
+        User instructor = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new RuntimeException("Instructor not found"));
 
         List<Course> courses = courseRepository.findByInstructor(instructor);
@@ -79,8 +104,8 @@ public class InstructorController {
 
         Map<String, Object> dashboard = new HashMap<>();
         dashboard.put("instructor", Map.of(
-                "name", instructor.getName(),
-                "email", instructor.getEmail()
+                "name", currentUser.getDisplayName(),
+                "email", currentUser.getEmail()
         ));
         dashboard.put("totalCourses", courses.size());
         dashboard.put("totalBatches", batches.size());
@@ -98,10 +123,8 @@ public class InstructorController {
     }
 
     @GetMapping("/exams")
-    public ResponseEntity<List<Map<String, Object>>> getMyExams(Authentication authentication) {
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+    public ResponseEntity<List<Map<String, Object>>> getMyExams(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         List<Exam> exams = examRepository.findByInstructor(instructor);
         
@@ -132,10 +155,8 @@ public class InstructorController {
     }
 
     @PostMapping("/exams")
-    public ResponseEntity<Map<String, Object>> createExam(@RequestBody Map<String, Object> examData, Authentication authentication) {
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+    public ResponseEntity<Map<String, Object>> createExam(@RequestBody Map<String, Object> examData, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         // Get course
         Long courseId = Long.valueOf(examData.get("courseId").toString());
@@ -203,11 +224,9 @@ public class InstructorController {
     @GetMapping("/exams/{examId}/attempts")
     public ResponseEntity<List<Map<String, Object>>> getExamAttempts(
             @PathVariable Long examId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -251,11 +270,9 @@ public class InstructorController {
     @DeleteMapping("/exams/{examId}")
     public ResponseEntity<Map<String, String>> deleteExam(
             @PathVariable Long examId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -265,6 +282,7 @@ public class InstructorController {
         }
 
         examRepository.delete(exam);
+        referenceCacheService.evictQuestions();
         return ResponseEntity.ok(Map.of("message", "Exam deleted successfully"));
     }
 
@@ -276,11 +294,9 @@ public class InstructorController {
     public ResponseEntity<Map<String, Object>> generateAIQuestionsPreview(
             @PathVariable Long examId,
             @RequestBody Map<String, Object> requestData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         // If examId is provided and not 0, verify ownership
         if (examId != null && examId != 0) {
@@ -297,10 +313,26 @@ public class InstructorController {
         String courseName = (String) requestData.get("courseName");
         String topic = (String) requestData.get("topic");
         String difficulty = (String) requestData.get("difficulty");
-        int numberOfQuestions = ((Number) requestData.get("numberOfQuestions")).intValue();
+        Integer numberOfQuestions = questionCount(requestData.get("numberOfQuestions"));
+        if (numberOfQuestions == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", INVALID_QUESTION_COUNT));
+        }
 
-        // Call AI service
-        AiQuestionResponse aiResponse = aiQuestionService.generateQuestions(
+        // Serve instantly from the pre-generated pool when it can cover the whole request
+        List<AiGeneratedQuestion> pooled = questionPoolService.takeFromPool(courseName, topic, difficulty, numberOfQuestions);
+        if (pooled != null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("questions", pooled);
+            response.put("courseName", courseName);
+            response.put("topic", topic);
+            response.put("difficulty", difficulty);
+            response.put("count", pooled.size());
+            response.put("source", "pool");
+            return ResponseEntity.ok(response);
+        }
+
+        // Call AI service (falls back to the course question bank while the AI service is down)
+        AiQuestionResponse aiResponse = aiQuestionService.generateQuestionsOrFallback(
                 courseName, topic, difficulty, numberOfQuestions
         );
 
@@ -311,10 +343,99 @@ public class InstructorController {
         response.put("topic", aiResponse.getTopic());
         response.put("difficulty", aiResponse.getDifficulty());
         response.put("count", aiResponse.getCount());
+        response.put("source", "ai");
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Generate AI questions for preview as a Server-Sent Events stream (Instructor only)
+     * The request is split into chunks; each chunk is sent as a "questions" event as soon
+     * as it is generated and validated, followed by a single "complete" event.
+     * Can be called without an exam ID (examId=0), like ai-generate-preview
+     */
+    @PostMapping(value = "/exams/{examId}/ai-generate-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAIQuestions(
+            @PathVariable Long examId,
+            @RequestBody Map<String, Object> requestData,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        User instructor = userRepository.getReferenceById(currentUser.getId());
+
+        if (examId != null && examId != 0) {
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new RuntimeException("Exam not found"));
+
+            if (!exam.getInstructor().getId().equals(instructor.getId())) {
+                throw new RuntimeException("You can only generate questions for your own exams");
+            }
+        }
+
+        String courseName = (String) requestData.get("courseName");
+        String topic = (String) requestData.get("topic");
+        String difficulty = (String) requestData.get("difficulty");
+        Integer numberOfQuestions = questionCount(requestData.get("numberOfQuestions"));
+        if (numberOfQuestions == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, INVALID_QUESTION_COUNT);
+        }
+
+        SseEmitter emitter = new SseEmitter(aiStreamTimeoutMs);
+
+        CompletableFuture<Void> generation = aiQuestionService.generateQuestionsInChunks(courseName, topic, difficulty, numberOfQuestions,
+                new AiQuestionService.ChunkListener() {
+                    @Override
+                    public void onChunk(int chunkIndex, int totalChunks, List<AiGeneratedQuestion> questions) {
+                        Map<String, Object> event = new HashMap<>();
+                        event.put("chunk", chunkIndex + 1);
+                        event.put("totalChunks", totalChunks);
+                        event.put("questions", questions);
+                        event.put("count", questions.size());
+                        sendEvent(emitter, "questions", event);
+                    }
+
+                    @Override
+                    public void onChunkFailed(int chunkIndex, int totalChunks, Exception error) {
+                        Map<String, Object> event = new HashMap<>();
+                        event.put("chunk", chunkIndex + 1);
+                        event.put("totalChunks", totalChunks);
+                        event.put("error", error.getMessage());
+                        sendEvent(emitter, "chunk-failed", event);
+                    }
+                });
+
+        generation.whenComplete((ignored, error) -> {
+            sendEvent(emitter, "complete", Map.of("status", "complete"));
+            emitter.complete();
+        });
+
+        // Client gone or stream timed out: stop the chunks that are still queued or retrying
+        emitter.onCompletion(() -> generation.cancel(false));
+        emitter.onTimeout(() -> generation.cancel(false));
+        emitter.onError(error -> generation.cancel(false));
+
+        return emitter;
+    }
+
+    /**
+     * The requested number of questions, or null when it is missing or outside 1..MAX_QUESTIONS
+     */
+    private Integer questionCount(Object value) {
+        if (!(value instanceof Number number)) {
+            return null;
+        }
+        long count = number.longValue();
+        return count >= 1 && count <= MAX_QUESTIONS ? (int) count : null;
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnected or emitter already completed; remaining chunks are simply dropped
+            logger.debug("Could not send SSE event {}: {}", name, e.getMessage());
+        }
+    }
+
     /**
      * Generate and save AI questions to exam (Instructor only)
      */
@@ -322,11 +443,9 @@ public class InstructorController {
     public ResponseEntity<Map<String, Object>> generateAndSaveAIQuestions(
             @PathVariable Long examId,
             @RequestBody List<Map<String, Object>> questionsData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -336,25 +455,22 @@ public class InstructorController {
             throw new RuntimeException("You can only add questions to your own exams");
         }
 
-        // Save each question
-        List<Question> savedQuestions = questionsData.stream().map(qData -> {
-            Question question = new Question();
-            question.setExam(exam);
-            question.setQuestionText((String) qData.get("question"));
-            question.setOptionA((String) qData.get("optionA"));
-            question.setOptionB((String) qData.get("optionB"));
-            question.setOptionC((String) qData.get("optionC"));
-            question.setOptionD((String) qData.get("optionD"));
-            question.setCorrectOption((String) qData.get("correctOption"));
-            question.setQuestionType("MCQ");
-            question.setMarks(1.0); // Default marks
-
-            return questionRepository.save(question);
-        }).collect(Collectors.toList());
+        List<AiGeneratedQuestion> questions = questionsData.stream()
+                .map(qData -> new AiGeneratedQuestion(
+                        (String) qData.get("question"),
+                        (String) qData.get("optionA"),
+                        (String) qData.get("optionB"),
+                        (String) qData.get("optionC"),
+                        (String) qData.get("optionD"),
+                        (String) qData.get("correctOption")))
+                .collect(Collectors.toList());
+
+        // Single batch insert instead of one save per question
+        int savedCount = aiQuestionService.saveQuestionsInBatch(exam, questions, "MCQ");
 
         Map<String, Object> response = new HashMap<>();
-        response.put("message", "Successfully saved " + savedQuestions.size() + " questions");
-        response.put("count", savedQuestions.size());
+        response.put("message", "Successfully saved " + savedCount + " questions");
+        response.put("count", savedCount);
 
         return ResponseEntity.ok(response);
     }
@@ -4,9 +4,10 @@ import com.skillforge.entity.ExamAttempt;
 import com.skillforge.entity.User;
 import com.skillforge.repository.ExamAttemptRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -25,10 +26,8 @@ public class PerformanceController {
     private UserRepository userRepository;
 
     @GetMapping("/overview")
-    public ResponseEntity<Map<String, Object>> getPerformanceOverview(Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+    public ResponseEntity<Map<String, Object>> getPerformanceOverview(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         List<ExamAttempt> attempts = examAttemptRepository.findByStudent(student);
 
@@ -52,9 +51,9 @@ public class PerformanceController {
     }
 
     @GetMapping("/recent-attempts")
-    public ResponseEntity<List<ExamAttempt>> getRecentAttempts(Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
+    public ResponseEntity<List<ExamAttempt>> getRecentAttempts(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        // Loaded rather than referenced: the attempts below serialize their student
+        User student = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
         List<ExamAttempt> attempts = examAttemptRepository.findByStudentOrderByAttemptedAtDesc(student);
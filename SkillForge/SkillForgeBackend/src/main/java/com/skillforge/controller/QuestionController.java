@@ -6,9 +6,10 @@ import com.skillforge.entity.User;
 import com.skillforge.repository.ExamRepository;
 import com.skillforge.repository.QuestionRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -37,21 +38,18 @@ public class QuestionController {
     public ResponseEntity<Map<String, Object>> createQuestion(
             @PathVariable Long examId,
             @RequestBody Map<String, Object> questionData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         System.out.println("=== CREATE QUESTION DEBUG ===");
         System.out.println("Exam ID: " + examId);
-        System.out.println("Authentication object: " + authentication);
-        System.out.println("Authentication name: " + authentication.getName());
-        System.out.println("Authentication authorities: " + authentication.getAuthorities());
-        System.out.println("Is authenticated: " + authentication.isAuthenticated());
+        System.out.println("Authentication object: " + currentUser);
+        System.out.println("Authentication name: " + currentUser.getEmail());
+        System.out.println("Authentication role: " + currentUser.getRole());
         System.out.println("============================");
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
-        System.out.println("Found instructor: " + instructor.getEmail() + " with role: " + instructor.getRole());
+        System.out.println("Found instructor: " + currentUser.getEmail() + " with role: " + currentUser.getRole());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -63,7 +61,7 @@ public class QuestionController {
             System.out.println("=== OWNERSHIP ERROR ===");
             System.out.println("Exam ID: " + examId);
             System.out.println("Exam creator: " + exam.getInstructor().getEmail() + " (ID: " + exam.getInstructor().getId() + ")");
-            System.out.println("Current user: " + email + " (ID: " + instructor.getId() + ")");
+            System.out.println("Current user: " + currentUser.getEmail() + " (ID: " + instructor.getId() + ")");
             System.out.println("======================");
             throw new RuntimeException("You can only add questions to your own exams. This exam belongs to " + exam.getInstructor().getEmail());
         }
@@ -110,11 +108,9 @@ public class QuestionController {
     @GetMapping("/exam/{examId}/instructor")
     public ResponseEntity<List<Map<String, Object>>> getExamQuestionsForInstructor(
             @PathVariable Long examId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -151,11 +147,9 @@ public class QuestionController {
     @GetMapping("/exam/{examId}/student")
     public ResponseEntity<List<Map<String, Object>>> getExamQuestionsForStudent(
             @PathVariable Long examId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -187,17 +181,15 @@ public class QuestionController {
     public ResponseEntity<Map<String, Object>> updateQuestion(
             @PathVariable Long questionId,
             @RequestBody Map<String, Object> questionData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         System.out.println("=== UPDATE QUESTION DEBUG ===");
         System.out.println("Question ID: " + questionId);
-        System.out.println("Authentication: " + authentication.getName());
-        System.out.println("Authorities: " + authentication.getAuthorities());
+        System.out.println("Authentication: " + currentUser.getEmail());
+        System.out.println("Role: " + currentUser.getRole());
         System.out.println("============================");
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Question question = questionRepository.findById(questionId)
                 .orElseThrow(() -> new RuntimeException("Question not found"));
@@ -206,7 +198,7 @@ public class QuestionController {
 
         // Verify instructor owns the exam
         if (!question.getExam().getInstructor().getId().equals(instructor.getId())) {
-            System.out.println("OWNERSHIP MISMATCH: Current user " + email + " vs Exam owner " + question.getExam().getInstructor().getEmail());
+            System.out.println("OWNERSHIP MISMATCH: Current user " + currentUser.getEmail() + " vs Exam owner " + question.getExam().getInstructor().getEmail());
             throw new RuntimeException("You can only update questions for your own exams");
         }
 
@@ -263,11 +255,9 @@ public class QuestionController {
     @DeleteMapping("/{questionId}")
     public ResponseEntity<Map<String, String>> deleteQuestion(
             @PathVariable Long questionId,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User instructor = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        User instructor = userRepository.getReferenceById(currentUser.getId());
 
         Question question = questionRepository.findById(questionId)
                 .orElseThrow(() -> new RuntimeException("Question not found"));
@@ -0,0 +1,105 @@
+package com.skillforge.controller;
+
+import com.skillforge.security.SignedUrlService;
+import com.skillforge.service.FileStreamingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Serves files behind URLs issued by {@link SignedUrlService}. Nothing here touches
+ * the database or the JWT: the signature is the whole authorization, which is what
+ * lets repeat and range requests stay cheap (and this handler move to a static server).
+ */
+@RestController
+public class SignedFileController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignedFileController.class);
+
+    @Autowired
+    private SignedUrlService signedUrlService;
+
+    @Autowired
+    private FileStreamingService fileStreamingService;
+
+    @Value("${app.storage.blob-dir:uploads/blobs}")
+    private String blobDir;
+
+    @Value("${app.resources.upload-dir}")
+    private String resourcesDir;
+
+    @Value("${app.assignments.upload-dir}")
+    private String assignmentsDir;
+
+    @Value("${app.video.upload-dir}")
+    private String videosDir;
+
+    @Value("${app.video.stream-chunk-bytes:4194304}")
+    private long streamChunkBytes;
+
+    private List<Path> roots;
+
+    @PostConstruct
+    public void init() {
+        roots = List.of(absolute(blobDir), absolute(resourcesDir), absolute(assignmentsDir), absolute(videosDir));
+    }
+
+    @GetMapping(SignedUrlService.PREFIX + "**")
+    public void serveSignedFile(
+            @RequestParam(value = "exp", required = false) String exp,
+            @RequestParam(value = "uid", required = false) String uid,
+            @RequestParam(value = "disp", required = false) String disp,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "sig", required = false) String sig,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String encodedPath = request.getRequestURI().substring(request.getContextPath().length() + SignedUrlService.PREFIX.length());
+        String storagePath = UriUtils.decode(encodedPath, StandardCharsets.UTF_8);
+
+        SignedUrlService.SignedFile signed = signedUrlService.verify(storagePath, exp, uid, disp, name, sig);
+        if (signed == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Link is invalid or has expired");
+            return;
+        }
+
+        Path file = absolute(storagePath);
+        if (roots.stream().noneMatch(file::startsWith) || !Files.isRegularFile(file)) {
+            logger.warn("Signed link for user {} points at a missing or disallowed file: {}", signed.userId(), storagePath);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String contentType = MediaTypeFactory.getMediaType(signed.downloadName())
+                .or(() -> MediaTypeFactory.getMediaType(file.getFileName().toString()))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        ContentDisposition.Builder disposition = signed.attachment() ? ContentDisposition.attachment() : ContentDisposition.inline();
+        // Stored files are never rewritten, so size and mtime identify the bytes
+        String entityTag = Long.toHexString(Files.size(file)) + "-" + Long.toHexString(Files.getLastModifiedTime(file).toMillis());
+
+        fileStreamingService.serve(request, response, file, entityTag, contentType,
+                disposition.filename(signed.downloadName(), StandardCharsets.UTF_8).build().toString(),
+                "signed", contentType.startsWith("video/") ? streamChunkBytes : 0);
+    }
+
+    private static Path absolute(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+}
@@ -10,10 +10,15 @@ import com.skillforge.repository.ExamAttemptRepository;
 import com.skillforge.repository.ExamRepository;
 import com.skillforge.repository.QuestionRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.service.AppMetrics;
 import com.skillforge.service.EnrollmentService;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -43,25 +48,25 @@ public class StudentController {
     @Autowired
     private QuestionRepository questionRepository;
 
-    @GetMapping("/me")
-    public ResponseEntity<Map<String, Object>> getStudentProfile(Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+    @Autowired
+    private AppMetrics appMetrics;
 
+    @GetMapping("/me")
+    public ResponseEntity<Map<String, Object>> getStudentProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         Map<String, Object> profile = new HashMap<>();
-        profile.put("id", student.getId());
-        profile.put("name", student.getName());
-        profile.put("email", student.getEmail());
-        profile.put("role", student.getRole().name());
+        profile.put("id", currentUser.getId());
+        profile.put("name", currentUser.getDisplayName());
+        profile.put("email", currentUser.getEmail());
+        profile.put("role", currentUser.getRole().name());
 
         return ResponseEntity.ok(profile);
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<Map<String, Object>> getDashboard(Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getDashboard(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        // Loaded rather than referenced: the attempts below serialize their student
+        User student = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
         List<Enrollment> enrollments = enrollmentRepository.findByStudent(student);
@@ -69,8 +74,8 @@ public class StudentController {
 
         Map<String, Object> dashboard = new HashMap<>();
         dashboard.put("student", Map.of(
-                "name", student.getName(),
-                "email", student.getEmail()
+                "name", currentUser.getDisplayName(),
+                "email", currentUser.getEmail()
         ));
         dashboard.put("enrolledCourses", enrollments.size());
         dashboard.put("recentAttempts", recentAttempts.stream().limit(5).toList());
@@ -109,10 +114,8 @@ public class StudentController {
     }
 
     @GetMapping("/exams")
-    public ResponseEntity<List<Map<String, Object>>> getStudentExams(Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+    public ResponseEntity<List<Map<String, Object>>> getStudentExams(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         // Get all enrollments for the student
         List<Enrollment> enrollments = enrollmentRepository.findByStudent(student);
@@ -172,10 +175,8 @@ public class StudentController {
     }
 
     @GetMapping("/exams/{examId}")
-    public ResponseEntity<Map<String, Object>> getExamDetails(@PathVariable Long examId, Authentication authentication) {
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+    public ResponseEntity<Map<String, Object>> getExamDetails(@PathVariable Long examId, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        User student = userRepository.getReferenceById(currentUser.getId());
 
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found"));
@@ -226,91 +227,104 @@ public class StudentController {
     public ResponseEntity<Map<String, Object>> submitExam(
             @PathVariable Long examId,
             @RequestBody Map<String, Object> submissionData,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        String email = authentication.getName();
-        User student = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        Timer.Sample submitSample = appMetrics.startTimer();
+        String outcome = "error";
+        try {
+            User student = userRepository.getReferenceById(currentUser.getId());
 
-        Exam exam = examRepository.findById(examId)
-                .orElseThrow(() -> new RuntimeException("Exam not found"));
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new RuntimeException("Exam not found"));
 
-        // Verify student is enrolled
-        List<Enrollment> enrollments = enrollmentRepository.findByStudent(student);
-        boolean isEnrolled = enrollments.stream()
-                .anyMatch(e -> e.getCourse().getId().equals(exam.getCourse().getId()));
+            // Verify student is enrolled
+            List<Enrollment> enrollments = enrollmentRepository.findByStudent(student);
+            boolean isEnrolled = enrollments.stream()
+                    .anyMatch(e -> e.getCourse().getId().equals(exam.getCourse().getId()));
 
-        if (!isEnrolled) {
-            throw new RuntimeException("You are not enrolled in this course");
-        }
+            if (!isEnrolled) {
+                throw new RuntimeException("You are not enrolled in this course");
+            }
 
-        // Check max attempts
-        List<ExamAttempt> attempts = examAttemptRepository.findByStudentOrderByAttemptedAtDesc(student)
-                .stream()
-                .filter(attempt -> attempt.getExam().getId().equals(examId))
-                .toList();
+            // Check max attempts
+            List<ExamAttempt> attempts = examAttemptRepository.findByStudentOrderByAttemptedAtDesc(student)
+                    .stream()
+                    .filter(attempt -> attempt.getExam().getId().equals(examId))
+                    .toList();
 
-        if (attempts.size() >= exam.getMaxAttempts()) {
-            throw new RuntimeException("Maximum attempts reached for this exam");
-        }
+            if (attempts.size() >= exam.getMaxAttempts()) {
+                throw new RuntimeException("Maximum attempts reached for this exam");
+            }
 
-        // Get student answers
-        @SuppressWarnings("unchecked")
-        Map<String, String> studentAnswers = (Map<String, String>) submissionData.get("answers");
+            // Get student answers
+            @SuppressWarnings("unchecked")
+            Map<String, String> studentAnswers = (Map<String, String>) submissionData.get("answers");
         
-        // Calculate score by comparing with correct answers
-        List<Question> examQuestions = questionRepository.findByExamOrderByQuestionOrderAsc(exam);
-        int correctCount = 0;
-        int wrongCount = 0;
+            // Calculate score by comparing with correct answers
+            Timer.Sample gradeSample = appMetrics.startTimer();
+            String gradeOutcome = "error";
+            ExamAttempt savedAttempt;
+            try {
+                List<Question> examQuestions = questionRepository.findByExamOrderByQuestionOrderAsc(exam);
+                int correctCount = 0;
+                int wrongCount = 0;
         
-        for (Question question : examQuestions) {
-            String studentAnswer = studentAnswers != null ? studentAnswers.get(String.valueOf(question.getId())) : null;
-            if (studentAnswer != null) {
-                if (studentAnswer.equals(question.getCorrectOption())) {
-                    correctCount++;
-                } else {
-                    wrongCount++;
+                for (Question question : examQuestions) {
+                    String studentAnswer = studentAnswers != null ? studentAnswers.get(String.valueOf(question.getId())) : null;
+                    if (studentAnswer != null) {
+                        if (studentAnswer.equals(question.getCorrectOption())) {
+                            correctCount++;
+                        } else {
+                            wrongCount++;
+                        }
+                    } else {
+                        wrongCount++; // Unanswered = wrong
+                    }
                 }
-            } else {
-                wrongCount++; // Unanswered = wrong
-            }
-        }
         
-        // Create exam attempt
-        ExamAttempt attempt = new ExamAttempt();
-        attempt.setExam(exam);
-        attempt.setStudent(student);
-        attempt.setAttemptedAt(java.time.LocalDateTime.now());
+                // Create exam attempt
+                ExamAttempt attempt = new ExamAttempt();
+                attempt.setExam(exam);
+                attempt.setStudent(student);
+                attempt.setAttemptedAt(java.time.LocalDateTime.now());
 
-        Integer timeTaken = (Integer) submissionData.get("timeTakenMinutes");
+                Integer timeTaken = (Integer) submissionData.get("timeTakenMinutes");
         
-        attempt.setTimeTakenMinutes(timeTaken);
-        attempt.setCorrectAnswers(correctCount);
-        attempt.setWrongAnswers(wrongCount);
-        attempt.setTotalQuestions(exam.getTotalQuestions());
-
-        // Calculate score (simple percentage for now)
-        double percentage = (correctCount * 100.0) / exam.getTotalQuestions();
-        attempt.setPercentage(percentage);
-        attempt.setScore(percentage); // Using percentage as score
-
-        // Note: Individual answers will be stored in ExamAnswer entity in future implementation
-        // Removed: attempt.setAnswers() - field doesn't exist, using ExamAnswer entity instead
-
-        ExamAttempt savedAttempt = examAttemptRepository.save(attempt);
-
-        // Prepare response
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", savedAttempt.getId());
-        result.put("score", savedAttempt.getScore());
-        result.put("percentage", savedAttempt.getPercentage());
-        result.put("correctAnswers", savedAttempt.getCorrectAnswers());
-        result.put("wrongAnswers", savedAttempt.getWrongAnswers());
-        result.put("totalQuestions", savedAttempt.getTotalQuestions());
-        result.put("timeTaken", savedAttempt.getTimeTakenMinutes());
-        result.put("attemptedAt", savedAttempt.getAttemptedAt());
-
-        return ResponseEntity.ok(result);
+                attempt.setTimeTakenMinutes(timeTaken);
+                attempt.setCorrectAnswers(correctCount);
+                attempt.setWrongAnswers(wrongCount);
+                attempt.setTotalQuestions(exam.getTotalQuestions());
+
+                // Calculate score (simple percentage for now)
+                double percentage = (correctCount * 100.0) / exam.getTotalQuestions();
+                attempt.setPercentage(percentage);
+                attempt.setScore(percentage); // Using percentage as score
+
+                // Note: Individual answers will be stored in ExamAnswer entity in future implementation
+                // Removed: attempt.setAnswers() - field doesn't exist, using ExamAnswer entity instead
+
+                savedAttempt = examAttemptRepository.save(attempt);
+                gradeOutcome = "success";
+            } finally {
+                appMetrics.recordGrading(gradeSample, gradeOutcome);
+            }
+
+            // Prepare response
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", savedAttempt.getId());
+            result.put("score", savedAttempt.getScore());
+            result.put("percentage", savedAttempt.getPercentage());
+            result.put("correctAnswers", savedAttempt.getCorrectAnswers());
+            result.put("wrongAnswers", savedAttempt.getWrongAnswers());
+            result.put("totalQuestions", savedAttempt.getTotalQuestions());
+            result.put("timeTaken", savedAttempt.getTimeTakenMinutes());
+            result.put("attemptedAt", savedAttempt.getAttemptedAt());
+
+            outcome = "success";
+            return ResponseEntity.ok(result);
+        } finally {
+            appMetrics.recordSubmission(submitSample, outcome);
+        }
     }
 }
 
@@ -1,15 +1,42 @@
 package com.skillforge.controller;
 
 import com.skillforge.dto.VideoRequest;
+import com.skillforge.dto.VideoUploadSessionRequest;
 import com.skillforge.entity.Video;
+import com.skillforge.entity.VideoUploadSession;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.exception.StorageQuotaExceededException;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
+import com.skillforge.security.SignedUrlService;
+import com.skillforge.service.FileStreamingService;
 import com.skillforge.service.VideoService;
+import com.skillforge.service.VideoUploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,28 +45,209 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class VideoController {
 
+    private static final Logger logger = LoggerFactory.getLogger(VideoController.class);
+
     @Autowired
     private VideoService videoService;
 
+    @Autowired
+    private CourseAccessService courseAccessService;
+
+    @Autowired
+    private FileStreamingService fileStreamingService;
+
+    @Autowired
+    private VideoUploadSessionService videoUploadSessionService;
+
+    @Autowired
+    private SignedUrlService signedUrlService;
+
+    @Value("${app.video.stream-chunk-bytes:4194304}")
+    private long streamChunkBytes;
+
     @PostMapping("/upload")
     public ResponseEntity<Video> uploadVideo(
             @PathVariable Long courseId,
             @RequestParam("title") String title,
             @RequestParam(value = "description", required = false) String description,
             @RequestParam("file") MultipartFile file,
-            Authentication authentication) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             VideoRequest request = new VideoRequest();
             request.setTitle(title);
             request.setDescription(description);
             request.setVideoType("UPLOADED");
-            Video video = videoService.uploadVideo(courseId, request, file);
+            Video video = videoService.uploadVideo(courseId, request, file, currentUser.getId());
             return ResponseEntity.ok(video);
-        } catch (IOException e) {
+        } catch (IOException | InvalidRequestException e) {
             return ResponseEntity.badRequest().build();
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         }
     }
 
+    /**
+     * Upload a video as the raw request body; it is written to storage in one pass
+     * with no multipart spooling
+     */
+    @PostMapping("/upload-stream")
+    public ResponseEntity<Video> uploadVideoStream(
+            @PathVariable Long courseId,
+            @RequestParam("title") String title,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "filename", required = false) String filename,
+            HttpServletRequest httpRequest,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            VideoRequest request = new VideoRequest();
+            request.setTitle(title);
+            request.setDescription(description);
+            request.setVideoType("UPLOADED");
+            Video video = videoService.uploadVideo(courseId, request, httpRequest.getInputStream(),
+                    httpRequest.getContentLengthLong(), filename, currentUser.getId());
+            return ResponseEntity.ok(video);
+        } catch (IOException | InvalidRequestException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+    }
+
+    /**
+     * Short-lived signed URL for an uploaded video; the player can then seek
+     * without sending a token or hitting the database
+     */
+    @GetMapping("/{videoId}/link")
+    public ResponseEntity<Map<String, Object>> getVideoLink(
+            @PathVariable Long courseId,
+            @PathVariable Long videoId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!courseAccessService.courseAccess(currentUser, courseId).granted()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+        }
+        try {
+            Video video = videoService.getUploadedVideo(courseId, videoId);
+            String fileName = Paths.get(video.getFilePath()).getFileName().toString();
+            String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+            String url = signedUrlService.sign(video.getFilePath(), currentUser.getId(), video.getTitle() + extension, false);
+            return ResponseEntity.ok(Map.of(
+                    "url", ServletUriComponentsBuilder.fromCurrentContextPath().toUriString() + url,
+                    "expiresInSeconds", signedUrlService.getTtlSeconds()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Start a resumable upload; the response says how to split the file into chunks
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<Map<String, Object>> createUploadSession(
+            @PathVariable Long courseId,
+            @RequestBody VideoUploadSessionRequest request,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            VideoUploadSession session = videoUploadSessionService.createSession(currentUser, courseId,
+                    request.getTitle(), request.getDescription(), request.getFileName(),
+                    request.getTotalSize() != null ? request.getTotalSize() : 0);
+            return ResponseEntity.status(HttpStatus.CREATED).body(describeUpload(session));
+        } catch (InvalidRequestException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (ForbiddenAccessException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error creating upload session: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not start upload"));
+        }
+    }
+
+    /**
+     * Upload chunk {@code index} as the raw body; retrying a chunk is safe
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<Map<String, Object>> uploadChunk(
+            @PathVariable Long courseId,
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest httpRequest) {
+        try {
+            VideoUploadSession session = videoUploadSessionService.writeChunk(currentUser, courseId, uploadId, index,
+                    httpRequest.getInputStream(), httpRequest.getContentLengthLong());
+            return ResponseEntity.ok(describeUpload(session));
+        } catch (InvalidRequestException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.warn("Chunk {} of upload {} failed: {}", index, uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Chunk upload failed, please retry"));
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getUploadSession(
+            @PathVariable Long courseId,
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            return ResponseEntity.ok(describeUpload(videoUploadSessionService.getSession(currentUser, courseId, uploadId)));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Finish a resumable upload once every chunk is in; creates the video
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUploadSession(
+            @PathVariable Long courseId,
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            return ResponseEntity.ok(videoUploadSessionService.complete(currentUser, courseId, uploadId));
+        } catch (InvalidRequestException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error completing upload {}: {}", uploadId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not complete upload"));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, String>> abortUploadSession(
+            @PathVariable Long courseId,
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) throws IOException {
+        try {
+            videoUploadSessionService.abort(currentUser, courseId, uploadId);
+            return ResponseEntity.ok(Map.of("message", "Upload cancelled"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> describeUpload(VideoUploadSession session) {
+        List<Integer> missing = videoUploadSessionService.missingChunks(session);
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", session.getId());
+        response.put("totalSize", session.getTotalSize());
+        response.put("chunkSize", session.getChunkSize());
+        response.put("totalChunks", VideoUploadSessionService.chunkCount(session.getTotalSize(), session.getChunkSize()));
+        response.put("receivedBytes", videoUploadSessionService.receivedBytes(session));
+        response.put("missingChunks", missing);
+        response.put("complete", missing.isEmpty());
+        response.put("expiresAt", session.getExpiresAt());
+        return response;
+    }
+
     @PostMapping("/link")
     public ResponseEntity<Video> addVideoLink(
             @PathVariable Long courseId,
@@ -55,6 +263,44 @@ public class VideoController {
         return ResponseEntity.ok(videos);
     }
 
+    /**
+     * Stream an uploaded video to course members. Open-ended ranges are answered
+     * in chunks, so players fetch only what is watched.
+     */
+    @GetMapping("/{videoId}/stream")
+    public void streamVideo(
+            @PathVariable Long courseId,
+            @PathVariable Long videoId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!courseAccessService.courseAccess(currentUser, courseId).granted()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if (!videoService.tryAcquireStream(currentUser.getId())) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(429, "Too many concurrent streams");
+            return;
+        }
+        try {
+            Video video = videoService.getUploadedVideo(courseId, videoId);
+            Path file = Paths.get(video.getFilePath());
+            String contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+            // Stored files are never rewritten, so size and mtime identify the bytes
+            String entityTag = "v" + video.getId() + "-" + Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis();
+
+            // Written here rather than by sendfile, so the stream slot is held until the chunk is sent
+            fileStreamingService.serve(request, response, file, entityTag, contentType, null, "video", streamChunkBytes, false);
+        } catch (ResourceNotFoundException | NoSuchFileException e) {
+            logger.error("Video not found: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } finally {
+            videoService.releaseStream(currentUser.getId());
+        }
+    }
+
     @DeleteMapping("/{videoId}")
     public ResponseEntity<Map<String, String>> deleteVideo(@PathVariable Long videoId, Authentication authentication) {
         videoService.deleteVideo(videoId);
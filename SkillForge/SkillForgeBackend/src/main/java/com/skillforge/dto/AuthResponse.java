@@ -1,17 +1,25 @@
 package com.skillforge.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class AuthResponse {
     private String token;
     private String email;
     private String name;
     private String role;
     private String message;
-}
+    private String refreshToken;
+    // Access token lifetime in seconds
+    private Long expiresIn;
 
+    public AuthResponse(String token, String email, String name, String role, String message) {
+        this.token = token;
+        this.email = email;
+        this.name = name;
+        this.role = role;
+        this.message = message;
+    }
+}
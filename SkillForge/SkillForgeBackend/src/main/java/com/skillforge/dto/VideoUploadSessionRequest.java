@@ -0,0 +1,11 @@
+package com.skillforge.dto;
+
+import lombok.Data;
+
+@Data
+public class VideoUploadSessionRequest {
+    private String title;
+    private String description;
+    private String fileName;
+    private Long totalSize; // in bytes
+}
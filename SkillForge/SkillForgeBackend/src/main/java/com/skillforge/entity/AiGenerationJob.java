@@ -0,0 +1,75 @@
+package com.skillforge.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ai_generation_jobs", indexes = {
+    @Index(name = "idx_ai_job_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_ai_job_instructor", columnList = "instructor_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiGenerationJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "instructor_id", nullable = false)
+    @JsonIgnore
+    private User instructor;
+
+    @Column(name = "exam_id")
+    private Long examId;
+
+    @Column(name = "course_name")
+    private String courseName;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(length = 20)
+    private String difficulty;
+
+    @Column(name = "number_of_questions", nullable = false)
+    private Integer numberOfQuestions;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @JsonIgnore
+    @Column(name = "result_json", columnDefinition = "LONGTEXT")
+    private String resultJson;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
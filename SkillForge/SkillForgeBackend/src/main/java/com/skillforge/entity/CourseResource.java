@@ -37,6 +37,23 @@ public class CourseResource {
     @Column(name = "file_size")
     private Long fileSize; // in bytes
 
+    /** Hex SHA-256 of the file, served as its ETag */
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    /** Search indexing state of the PDF's text; NULL on rows from before indexing, treated as PENDING */
+    @Column(name = "text_status", length = 20)
+    @Enumerated(EnumType.STRING)
+    private TextStatus textStatus;
+
+    @Column(name = "text_page_count")
+    private Integer textPageCount;
+
+    @Column(name = "text_updated_at")
+    @JsonIgnore
+    private LocalDateTime textUpdatedAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -44,4 +61,8 @@ public class CourseResource {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    public enum TextStatus {
+        PENDING, EXTRACTING, INDEXED, FAILED
+    }
 }
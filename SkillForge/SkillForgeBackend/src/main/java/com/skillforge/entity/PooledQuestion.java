@@ -0,0 +1,68 @@
+package com.skillforge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-generated, validated AI question waiting in the pool for its (course, topic, difficulty) key
+ */
+@Entity
+@Table(name = "ai_question_pool",
+    indexes = {
+        @Index(name = "idx_pool_key", columnList = "course_key, topic_key, difficulty")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uq_pool_key_text", columnNames = {"course_key", "topic_key", "difficulty", "text_hash"})
+    }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PooledQuestion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_key", nullable = false)
+    private String courseKey;
+
+    @Column(name = "topic_key", nullable = false)
+    private String topicKey;
+
+    @Column(nullable = false, length = 20)
+    private String difficulty;
+
+    @Column(name = "question_text", columnDefinition = "TEXT", nullable = false)
+    private String questionText;
+
+    @Column(name = "option_a", length = 500)
+    private String optionA;
+
+    @Column(name = "option_b", length = 500)
+    private String optionB;
+
+    @Column(name = "option_c", length = 500)
+    private String optionC;
+
+    @Column(name = "option_d", length = 500)
+    private String optionD;
+
+    @Column(name = "correct_option", length = 1, nullable = false)
+    private String correctOption;
+
+    // SHA-256 of the normalized question text, used for de-duplication
+    @Column(name = "text_hash", length = 64, nullable = false)
+    private String textHash;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,52 @@
+package com.skillforge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A (course, topic, difficulty) key that instructors have asked for and that the
+ * pre-generation scheduler keeps stocked
+ */
+@Entity
+@Table(name = "ai_question_pool_topics",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uq_pool_topic_key", columnNames = {"course_key", "topic_key", "difficulty"})
+    }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionPoolTopic {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_key", nullable = false)
+    private String courseKey;
+
+    @Column(name = "topic_key", nullable = false)
+    private String topicKey;
+
+    @Column(nullable = false, length = 20)
+    private String difficulty;
+
+    // Original spelling, sent to the AI service when refilling
+    @Column(name = "course_name")
+    private String courseName;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "request_count", nullable = false)
+    private Long requestCount = 0L;
+
+    @Column(name = "last_requested_at")
+    private LocalDateTime lastRequestedAt;
+
+    @Column(name = "last_refilled_at")
+    private LocalDateTime lastRefilledAt;
+}
@@ -0,0 +1,35 @@
+package com.skillforge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Extracted text of one page of a course resource PDF. The content column carries
+ * a MySQL FULLTEXT index (see schema-updates.sql), which is what resource search
+ * queries; rows go away with their resource through ON DELETE CASCADE.
+ */
+@Entity
+@Table(name = "resource_page_text")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourcePageText {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "resource_id", nullable = false)
+    private Long resourceId;
+
+    /** Copied from the resource so searches filter by course without a join */
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "page_number", nullable = false)
+    private Integer pageNumber;
+
+    @Column(name = "content", columnDefinition = "MEDIUMTEXT", nullable = false)
+    private String content;
+}
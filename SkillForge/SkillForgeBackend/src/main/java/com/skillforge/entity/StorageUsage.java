@@ -0,0 +1,60 @@
+package com.skillforge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of uploaded bytes for one scope: the whole platform (scopeId 0),
+ * a course, or an uploading user. Bytes are logical, i.e. a file shared by two
+ * rows through the blob store counts twice. Kept up to date by StorageQuotaService
+ * in the same transaction as each upload and delete.
+ */
+@Entity
+@Table(name = "storage_usage", uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "scope_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", length = 10, nullable = false)
+    private Scope scope;
+
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    @Column(name = "resource_bytes", nullable = false)
+    private Long resourceBytes = 0L;
+
+    @Column(name = "submission_bytes", nullable = false)
+    private Long submissionBytes = 0L;
+
+    @Column(name = "video_bytes", nullable = false)
+    private Long videoBytes = 0L;
+
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public long getTotalBytes() {
+        return resourceBytes + submissionBytes + videoBytes;
+    }
+
+    public enum Scope {
+        GLOBAL, COURSE, USER
+    }
+
+    /** What the bytes belong to; names match the CASE branches in StorageUsageRepository */
+    public enum Kind {
+        RESOURCE, SUBMISSION, VIDEO
+    }
+}
@@ -36,6 +36,14 @@ public class Video {
     @Column(name = "file_path")
     private String filePath; // For uploaded videos
 
+    @Column(name = "file_size")
+    private Long fileSize; // in bytes, for uploaded videos
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "uploaded_by")
+    @JsonIgnore
+    private User uploadedBy;
+
     @Column(name = "external_url", length = 1000)
     private String externalUrl; // For YouTube/external links
 
@@ -0,0 +1,14 @@
+package com.skillforge.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An upload would take a course, user or the platform over its storage quota
+ */
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class StorageQuotaExceededException extends RuntimeException {
+    public StorageQuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,57 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.AiGenerationJob;
+import com.skillforge.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AiGenerationJobRepository extends JpaRepository<AiGenerationJob, Long> {
+
+    List<AiGenerationJob> findByInstructorOrderByCreatedAtDesc(User instructor);
+
+    long countByStatus(AiGenerationJob.JobStatus status);
+
+    long countByInstructorAndStatus(User instructor, AiGenerationJob.JobStatus status);
+
+    /**
+     * Oldest queued job of every instructor that has work waiting (head of each per-instructor queue)
+     */
+    @Query("SELECT j FROM AiGenerationJob j WHERE j.status = com.skillforge.entity.AiGenerationJob.JobStatus.QUEUED " +
+           "AND j.id = (SELECT MIN(j2.id) FROM AiGenerationJob j2 " +
+           "WHERE j2.instructor = j.instructor AND j2.status = com.skillforge.entity.AiGenerationJob.JobStatus.QUEUED)")
+    List<AiGenerationJob> findQueueHeadsPerInstructor();
+
+    /**
+     * Number of queued jobs ahead of the given one (used to report queue position)
+     */
+    @Query("SELECT COUNT(j) FROM AiGenerationJob j WHERE j.status = com.skillforge.entity.AiGenerationJob.JobStatus.QUEUED AND j.id < :jobId")
+    long countQueuedBefore(@Param("jobId") Long jobId);
+
+    /**
+     * Atomically claim a queued job; returns 0 if another worker claimed it first
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AiGenerationJob j SET j.status = com.skillforge.entity.AiGenerationJob.JobStatus.RUNNING, " +
+           "j.startedAt = :now, j.attempts = j.attempts + 1 " +
+           "WHERE j.id = :jobId AND j.status = com.skillforge.entity.AiGenerationJob.JobStatus.QUEUED")
+    int claim(@Param("jobId") Long jobId, @Param("now") LocalDateTime now);
+
+    /**
+     * Put back in the queue jobs that have been RUNNING since before the cutoff, i.e.
+     * whose node stopped before finishing them
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AiGenerationJob j SET j.status = com.skillforge.entity.AiGenerationJob.JobStatus.QUEUED, j.startedAt = NULL " +
+           "WHERE j.status = com.skillforge.entity.AiGenerationJob.JobStatus.RUNNING AND j.startedAt < :startedBefore")
+    int requeueInterrupted(@Param("startedBefore") LocalDateTime startedBefore);
+}
@@ -3,10 +3,13 @@ package com.skillforge.repository;
 import com.skillforge.entity.Assignment;
 import com.skillforge.entity.AssignmentSubmission;
 import com.skillforge.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -58,6 +61,15 @@ public interface AssignmentSubmissionRepository extends JpaRepository<Assignment
     @Query("SELECT s FROM AssignmentSubmission s WHERE s.assignment.id = :assignmentId AND s.marksAwarded IS NULL ORDER BY s.submittedAt ASC")
     List<AssignmentSubmission> findPendingGradingByAssignment(@Param("assignmentId") Long assignmentId);
     
+    /**
+     * Submissions with their students loaded, for export; optionally only ungraded ones
+     */
+    @Query("SELECT s FROM AssignmentSubmission s JOIN FETCH s.student " +
+           "WHERE s.assignment.id = :assignmentId AND (:ungradedOnly = false OR s.marksAwarded IS NULL) " +
+           "ORDER BY s.student.name ASC")
+    List<AssignmentSubmission> findForExport(@Param("assignmentId") Long assignmentId,
+                                             @Param("ungradedOnly") boolean ungradedOnly);
+
     /**
      * Count submissions for an assignment
      */
@@ -88,4 +100,25 @@ public interface AssignmentSubmissionRepository extends JpaRepository<Assignment
         @Param("studentId") Long studentId, 
         @Param("courseId") Long courseId
     );
+
+    long countByFilePath(String filePath);
+
+    /**
+     * Distinct file paths outside the blob store, after {@code after} in path order
+     */
+    @Query("SELECT DISTINCT s.filePath FROM AssignmentSubmission s WHERE s.filePath IS NOT NULL " +
+           "AND LOCATE(:blobPrefix, s.filePath) <> 1 AND s.filePath > :after ORDER BY s.filePath")
+    List<String> findLegacyFilePaths(@Param("blobPrefix") String blobPrefix, @Param("after") String after, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AssignmentSubmission s SET s.filePath = :newPath WHERE s.filePath = :oldPath")
+    int updateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * [course id, student id, bytes, files] for one course, or every course when courseId is null
+     */
+    @Query("SELECT s.assignment.course.id, s.student.id, COALESCE(SUM(s.fileSize), 0), COUNT(s) FROM AssignmentSubmission s " +
+           "WHERE :courseId IS NULL OR s.assignment.course.id = :courseId GROUP BY s.assignment.course.id, s.student.id")
+    List<Object[]> sumStorageByCourseAndUser(@Param("courseId") Long courseId);
 }
@@ -3,6 +3,8 @@ package com.skillforge.repository;
 import com.skillforge.entity.Course;
 import com.skillforge.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,5 +12,9 @@ import java.util.List;
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
     List<Course> findByInstructor(User instructor);
+    boolean existsByIdAndInstructor_Id(Long courseId, Long instructorId);
+
+    @Query("SELECT c.id FROM Course c WHERE c.instructor.id = :instructorId")
+    List<Long> findIdsByInstructorId(@Param("instructorId") Long instructorId);
 }
 
@@ -2,13 +2,76 @@ package com.skillforge.repository;
 
 import com.skillforge.entity.Course;
 import com.skillforge.entity.CourseResource;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CourseResourceRepository extends JpaRepository<CourseResource, Long> {
     List<CourseResource> findByCourse(Course course);
     List<CourseResource> findByCourseOrderByCreatedAtDesc(Course course);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CourseResource r SET r.contentHash = :hash WHERE r.id = :id")
+    int updateContentHash(@Param("id") Long id, @Param("hash") String hash);
+
+    /**
+     * Take a resource for text extraction: only if it is waiting, or its previous
+     * extraction has been stuck since before {@code staleBefore}
+     *
+     * @return 1 if this caller claimed it
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CourseResource r SET r.textStatus = :extracting, r.textUpdatedAt = :now " +
+           "WHERE r.id = :id AND (r.textStatus IS NULL OR r.textStatus = :pending " +
+           "OR (r.textStatus = :extracting AND r.textUpdatedAt < :staleBefore))")
+    int claimForExtraction(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore,
+                           @Param("pending") CourseResource.TextStatus pending,
+                           @Param("extracting") CourseResource.TextStatus extracting);
+
+    @Query("SELECT r.id FROM CourseResource r WHERE r.textStatus IS NULL OR r.textStatus = :pending " +
+           "OR (r.textStatus = :extracting AND r.textUpdatedAt < :staleBefore) ORDER BY r.id")
+    List<Long> findIdsAwaitingExtraction(@Param("staleBefore") LocalDateTime staleBefore,
+                                         @Param("pending") CourseResource.TextStatus pending,
+                                         @Param("extracting") CourseResource.TextStatus extracting,
+                                         Pageable pageable);
+
+    Optional<CourseResource> findFirstByContentHashAndTextStatusAndIdNot(String contentHash, CourseResource.TextStatus textStatus, Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CourseResource r SET r.textStatus = :status, r.textPageCount = :pages, r.textUpdatedAt = :now WHERE r.id = :id")
+    int updateTextStatus(@Param("id") Long id, @Param("status") CourseResource.TextStatus status,
+                         @Param("pages") Integer pages, @Param("now") LocalDateTime now);
+
+    long countByFilePath(String filePath);
+
+    /**
+     * Distinct file paths outside the blob store, after {@code after} in path order
+     */
+    @Query("SELECT DISTINCT r.filePath FROM CourseResource r WHERE r.filePath IS NOT NULL " +
+           "AND LOCATE(:blobPrefix, r.filePath) <> 1 AND r.filePath > :after ORDER BY r.filePath")
+    List<String> findLegacyFilePaths(@Param("blobPrefix") String blobPrefix, @Param("after") String after, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CourseResource r SET r.filePath = :newPath WHERE r.filePath = :oldPath")
+    int updateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * [course id, uploader id, bytes, files] for one course, or every course when courseId is null
+     */
+    @Query("SELECT r.course.id, r.uploadedBy.id, COALESCE(SUM(r.fileSize), 0), COUNT(r) FROM CourseResource r " +
+           "WHERE :courseId IS NULL OR r.course.id = :courseId GROUP BY r.course.id, r.uploadedBy.id")
+    List<Object[]> sumStorageByCourseAndUser(@Param("courseId") Long courseId);
 }
@@ -4,6 +4,9 @@ import com.skillforge.entity.Exam;
 import com.skillforge.entity.Course;
 import com.skillforge.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -14,5 +17,13 @@ public interface ExamRepository extends JpaRepository<Exam, Long> {
     List<Exam> findByCourse(Course course);
     List<Exam> findByInstructor(User instructor);
     List<Exam> findByStartTimeAfter(LocalDateTime dateTime);
+
+    /**
+     * Atomically add to the exam's question count. The row lock taken here also
+     * serializes concurrent bulk inserts into the same exam.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Exam e SET e.totalQuestions = COALESCE(e.totalQuestions, 0) + :delta WHERE e.id = :examId")
+    int incrementTotalQuestions(@Param("examId") Long examId, @Param("delta") int delta);
 }
 
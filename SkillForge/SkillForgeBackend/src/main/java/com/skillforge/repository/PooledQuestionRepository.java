@@ -0,0 +1,35 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.PooledQuestion;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PooledQuestionRepository extends JpaRepository<PooledQuestion, Long> {
+
+    long countByCourseKeyAndTopicKeyAndDifficulty(String courseKey, String topicKey, String difficulty);
+
+    boolean existsByCourseKeyAndTopicKeyAndDifficultyAndTextHash(String courseKey, String topicKey,
+                                                                 String difficulty, String textHash);
+
+    /**
+     * Lock the oldest pooled questions for a key, skipping rows another request is already taking
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT p FROM PooledQuestion p WHERE p.courseKey = :courseKey AND p.topicKey = :topicKey " +
+           "AND p.difficulty = :difficulty ORDER BY p.id ASC")
+    List<PooledQuestion> lockOldest(@Param("courseKey") String courseKey,
+                                    @Param("topicKey") String topicKey,
+                                    @Param("difficulty") String difficulty,
+                                    Pageable pageable);
+}
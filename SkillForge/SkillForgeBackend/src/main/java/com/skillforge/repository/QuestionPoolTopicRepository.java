@@ -0,0 +1,17 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.QuestionPoolTopic;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface QuestionPoolTopicRepository extends JpaRepository<QuestionPoolTopic, Long> {
+
+    Optional<QuestionPoolTopic> findByCourseKeyAndTopicKeyAndDifficulty(String courseKey, String topicKey, String difficulty);
+
+    List<QuestionPoolTopic> findByLastRequestedAtAfterOrderByRequestCountDesc(LocalDateTime since);
+}
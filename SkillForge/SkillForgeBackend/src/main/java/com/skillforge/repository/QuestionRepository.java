@@ -2,14 +2,48 @@ package com.skillforge.repository;
 
 import com.skillforge.entity.Exam;
 import com.skillforge.entity.Question;
+import com.skillforge.service.ReferenceCacheService;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
+    /**
+     * Query-cached: an exam's questions are read on every attempt and rarely change.
+     * Grading uses {@link #findByExam}, which always reads the table.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceCacheService.QUESTIONS_BY_EXAM_REGION)
+    })
     List<Question> findByExamOrderByQuestionOrderAsc(Exam exam);
+
     List<Question> findByExam(Exam exam);
     Long countByExam(Exam exam);
+
+    @Query("SELECT COALESCE(MAX(q.questionOrder), 0) FROM Question q WHERE q.exam.id = :examId")
+    int findMaxQuestionOrder(@Param("examId") Long examId);
+
+    /**
+     * Random questions from a course's exams whose text mentions the topic (question bank fallback)
+     */
+    @Query("SELECT q FROM Question q WHERE q.exam.course.title = :courseTitle " +
+           "AND LOWER(q.questionText) LIKE LOWER(CONCAT('%', :topic, '%')) ORDER BY FUNCTION('RAND')")
+    List<Question> sampleByCourseTitleAndTopic(@Param("courseTitle") String courseTitle,
+                                               @Param("topic") String topic,
+                                               Pageable pageable);
+
+    /**
+     * Random questions from any exam of the course
+     */
+    @Query("SELECT q FROM Question q WHERE q.exam.course.title = :courseTitle ORDER BY FUNCTION('RAND')")
+    List<Question> sampleByCourseTitle(@Param("courseTitle") String courseTitle, Pageable pageable);
 }
@@ -0,0 +1,54 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.ResourcePageText;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ResourcePageTextRepository extends JpaRepository<ResourcePageText, Long> {
+
+    @Modifying
+    @Query("DELETE FROM ResourcePageText p WHERE p.resourceId = :resourceId")
+    int deleteByResourceId(@Param("resourceId") Long resourceId);
+
+    /**
+     * Give {@code targetId} the pages already extracted for an identical PDF
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "resource_page_text"))
+    @Query(value = "INSERT INTO resource_page_text (resource_id, course_id, page_number, content) " +
+            "SELECT :targetId, :courseId, page_number, content FROM resource_page_text WHERE resource_id = :sourceId",
+            nativeQuery = true)
+    int copyPages(@Param("sourceId") Long sourceId, @Param("targetId") Long targetId, @Param("courseId") Long courseId);
+
+    /**
+     * [resource id, title, course id, page number, page text, score] for pages matching a
+     * boolean-mode full-text query in the given courses, best first
+     */
+    @Query(value = "SELECT p.resource_id, r.title, p.course_id, p.page_number, p.content, " +
+            "MATCH(p.content) AGAINST(:query IN BOOLEAN MODE) AS score " +
+            "FROM resource_page_text p JOIN course_resources r ON r.id = p.resource_id " +
+            "WHERE MATCH(p.content) AGAINST(:query IN BOOLEAN MODE) AND p.course_id IN (:courseIds) " +
+            "ORDER BY score DESC, p.resource_id, p.page_number LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchInCourses(@Param("query") String query, @Param("courseIds") Collection<Long> courseIds,
+                                   @Param("limit") int limit);
+
+    /**
+     * As {@link #searchInCourses}, across every course
+     */
+    @Query(value = "SELECT p.resource_id, r.title, p.course_id, p.page_number, p.content, " +
+            "MATCH(p.content) AGAINST(:query IN BOOLEAN MODE) AS score " +
+            "FROM resource_page_text p JOIN course_resources r ON r.id = p.resource_id " +
+            "WHERE MATCH(p.content) AGAINST(:query IN BOOLEAN MODE) " +
+            "ORDER BY score DESC, p.resource_id, p.page_number LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchAll(@Param("query") String query, @Param("limit") int limit);
+}
@@ -0,0 +1,52 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.StorageUsage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Long> {
+
+    Optional<StorageUsage> findByScopeAndScopeId(StorageUsage.Scope scope, Long scopeId);
+
+    @Query("SELECT u FROM StorageUsage u WHERE u.scope = :scope " +
+           "ORDER BY (u.resourceBytes + u.submissionBytes + u.videoBytes) DESC")
+    List<StorageUsage> findLargest(@Param("scope") StorageUsage.Scope scope, Pageable pageable);
+
+    /**
+     * Add {@code bytes} of {@code kind} and {@code files} files to one scope in a single
+     * statement. A positive change only applies if the new total stays within
+     * {@code limitBytes}; totals never go below zero.
+     *
+     * @return 0 if the row is missing or the change would exceed the limit
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "storage_usage"))
+    @Query(value = "UPDATE storage_usage SET " +
+            "resource_bytes = GREATEST(resource_bytes + CASE WHEN :kind = 'RESOURCE' THEN :bytes ELSE 0 END, 0), " +
+            "submission_bytes = GREATEST(submission_bytes + CASE WHEN :kind = 'SUBMISSION' THEN :bytes ELSE 0 END, 0), " +
+            "video_bytes = GREATEST(video_bytes + CASE WHEN :kind = 'VIDEO' THEN :bytes ELSE 0 END, 0), " +
+            "file_count = GREATEST(file_count + :files, 0), updated_at = NOW(6) " +
+            "WHERE scope = :scope AND scope_id = :scopeId " +
+            "AND (:bytes <= 0 OR resource_bytes + submission_bytes + video_bytes + :bytes <= :limitBytes)",
+            nativeQuery = true)
+    int addUsage(@Param("scope") String scope, @Param("scopeId") Long scopeId, @Param("kind") String kind,
+                 @Param("bytes") long bytes, @Param("files") long files, @Param("limitBytes") long limitBytes);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "storage_usage"))
+    @Query(value = "INSERT IGNORE INTO storage_usage " +
+            "(scope, scope_id, resource_bytes, submission_bytes, video_bytes, file_count, updated_at) " +
+            "VALUES (:scope, :scopeId, 0, 0, 0, 0, NOW(6))", nativeQuery = true)
+    int createIfMissing(@Param("scope") String scope, @Param("scopeId") Long scopeId);
+}
@@ -0,0 +1,39 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.StoredBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.sha256 = :sha256")
+    Optional<StoredBlob> findBySha256ForUpdate(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.storagePath = :storagePath")
+    Optional<StoredBlob> findByStoragePathForUpdate(@Param("storagePath") String storagePath);
+
+    Optional<StoredBlob> findBySha256(String sha256);
+
+    /**
+     * Next page of blobs in id order, for incremental walks
+     */
+    List<StoredBlob> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * [blobs, stored bytes, references, referenced bytes]
+     */
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.sizeBytes), 0), COALESCE(SUM(b.refCount), 0), " +
+           "COALESCE(SUM(b.sizeBytes * b.refCount), 0) FROM StoredBlob b")
+    Object[] summarize();
+}
@@ -1,15 +1,35 @@
 package com.skillforge.repository;
 
 import com.skillforge.entity.User;
+import com.skillforge.service.ReferenceCacheService;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    /**
+     * Query-cached; the user may be up to the region's expiry old when changed on
+     * another node. Password checks use {@link #findCurrentByEmail}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceCacheService.USERS_BY_EMAIL_REGION)
+    })
     Optional<User> findByEmail(String email);
+
+    /**
+     * As {@link #findByEmail}, but always read from the table
+     */
+    @Query("SELECT u FROM User u WHERE u.email = :email")
+    Optional<User> findCurrentByEmail(@Param("email") String email);
+
     boolean existsByEmail(String email);
     long countByRole(User.Role role);
 }
-
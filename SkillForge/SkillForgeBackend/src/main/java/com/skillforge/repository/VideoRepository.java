@@ -2,13 +2,39 @@ package com.skillforge.repository;
 
 import com.skillforge.entity.Video;
 import com.skillforge.entity.Course;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
 public interface VideoRepository extends JpaRepository<Video, Long> {
     List<Video> findByCourse(Course course);
-}
 
+    long countByFilePath(String filePath);
+
+    /**
+     * Distinct file paths outside the blob store, after {@code after} in path order
+     */
+    @Query("SELECT DISTINCT v.filePath FROM Video v WHERE v.filePath IS NOT NULL AND v.filePath <> '' " +
+           "AND LOCATE(:blobPrefix, v.filePath) <> 1 AND v.filePath > :after ORDER BY v.filePath")
+    List<String> findLegacyFilePaths(@Param("blobPrefix") String blobPrefix, @Param("after") String after, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Video v SET v.filePath = :newPath WHERE v.filePath = :oldPath")
+    int updateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * [course id, uploader id (null for videos from before it was recorded), bytes, files]
+     * of uploaded videos, for one course or every course when courseId is null
+     */
+    @Query("SELECT v.course.id, u.id, COALESCE(SUM(v.fileSize), 0), COUNT(v) FROM Video v LEFT JOIN v.uploadedBy u " +
+           "WHERE v.filePath IS NOT NULL AND (:courseId IS NULL OR v.course.id = :courseId) GROUP BY v.course.id, u.id")
+    List<Object[]> sumStorageByCourseAndUser(@Param("courseId") Long courseId);
+}
@@ -0,0 +1,23 @@
+package com.skillforge.repository;
+
+import com.skillforge.entity.VideoUploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VideoUploadSessionRepository extends JpaRepository<VideoUploadSession, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM VideoUploadSession s WHERE s.id = :id")
+    Optional<VideoUploadSession> findByIdForUpdate(@Param("id") String id);
+
+    List<VideoUploadSession> findByExpiresAtBefore(LocalDateTime cutoff);
+}
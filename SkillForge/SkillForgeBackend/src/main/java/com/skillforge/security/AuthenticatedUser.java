@@ -0,0 +1,61 @@
+package com.skillforge.security;
+
+import com.skillforge.entity.User;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+/**
+ * Principal placed in the security context by {@link JwtAuthenticationFilter}.
+ *
+ * Carries what controllers usually need about the caller so they do not have to
+ * query the users table again. Inject it with {@code @AuthenticationPrincipal}.
+ * {@link #getName()} is the email, so {@code authentication.getName()} keeps working.
+ */
+public class AuthenticatedUser implements Principal, Serializable {
+
+    private final Long id;
+    private final String email;
+    private final String displayName;
+    private final User.Role role;
+
+    public AuthenticatedUser(Long id, String email, String displayName, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.displayName = displayName;
+        this.role = role;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getName(), user.getRole());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * The user's full name (getName() is the login email, as Principal requires)
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
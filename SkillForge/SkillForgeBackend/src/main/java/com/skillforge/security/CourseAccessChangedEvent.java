@@ -0,0 +1,20 @@
+package com.skillforge.security;
+
+/**
+ * Published when enrollment or course ownership changes, so cached access
+ * verdicts are dropped. A null field matches every course or every user.
+ */
+public record CourseAccessChangedEvent(Long courseId, Long userId) {
+
+    public static CourseAccessChangedEvent forEnrollment(Long courseId, Long studentId) {
+        return new CourseAccessChangedEvent(courseId, studentId);
+    }
+
+    public static CourseAccessChangedEvent forCourse(Long courseId) {
+        return new CourseAccessChangedEvent(courseId, null);
+    }
+
+    public static CourseAccessChangedEvent forUser(Long userId) {
+        return new CourseAccessChangedEvent(null, userId);
+    }
+}
@@ -0,0 +1,127 @@
+package com.skillforge.security;
+
+import com.skillforge.entity.Assignment;
+import com.skillforge.entity.AssignmentSubmission;
+import com.skillforge.entity.CourseResource;
+import com.skillforge.entity.User;
+import com.skillforge.repository.CourseRepository;
+import com.skillforge.repository.EnrollmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a user may see a course's content (resources, assignments) and
+ * caches the verdict per (user, role, course). Admins need no lookup; instructors
+ * own the course; students must be enrolled. Entries expire after a short TTL and
+ * are dropped as soon as a {@link CourseAccessChangedEvent} commits.
+ */
+@Component
+public class CourseAccessService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseAccessService.class);
+
+    public enum Access {
+        ADMIN,
+        OWNER,
+        ENROLLED,
+        NONE;
+
+        public boolean granted() {
+            return this != NONE;
+        }
+    }
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Value("${app.security.access-cache.max-size:20000}")
+    private int maxSize;
+
+    @Value("${app.security.access-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+
+    private record Key(Long userId, User.Role role, Long courseId) {
+    }
+
+    private record Entry(Access access, long loadedAtMillis) {
+    }
+
+    /**
+     * The caller's relationship to the course, from cache when fresh
+     */
+    public Access courseAccess(Long userId, User.Role role, Long courseId) {
+        if (role == User.Role.ADMIN) {
+            return Access.ADMIN;
+        }
+
+        Key key = new Key(userId, role, courseId);
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.loadedAtMillis() < ttlMs) {
+            return entry.access();
+        }
+
+        Access access = switch (role) {
+            case INSTRUCTOR -> courseRepository.existsByIdAndInstructor_Id(courseId, userId) ? Access.OWNER : Access.NONE;
+            case STUDENT -> enrollmentRepository.existsByStudent_IdAndCourse_Id(userId, courseId) ? Access.ENROLLED : Access.NONE;
+            default -> Access.NONE;
+        };
+
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(e -> now - e.loadedAtMillis() >= ttlMs);
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new Entry(access, now));
+        return access;
+    }
+
+    public Access courseAccess(AuthenticatedUser user, Long courseId) {
+        return courseAccess(user.getId(), user.getRole(), courseId);
+    }
+
+    public boolean canAccessResource(AuthenticatedUser user, CourseResource resource) {
+        boolean granted = courseAccess(user, resource.getCourse().getId()).granted();
+        if (!granted) {
+            logger.info("User {} with role {} denied access to resource {}", user.getEmail(), user.getRole(), resource.getId());
+        }
+        return granted;
+    }
+
+    public boolean canAccessAssignment(User user, Assignment assignment) {
+        return courseAccess(user.getId(), user.getRole(), assignment.getCourse().getId()).granted();
+    }
+
+    /**
+     * Submissions are private to their student and the assignment's instructor; the
+     * loaded submission already carries both ids, so this never hits the database
+     */
+    public boolean canAccessSubmission(AuthenticatedUser user, AssignmentSubmission submission) {
+        return switch (user.getRole()) {
+            case ADMIN -> true;
+            case INSTRUCTOR -> submission.getAssignment().getInstructor().getId().equals(user.getId());
+            case STUDENT -> submission.getStudent().getId().equals(user.getId());
+            default -> false;
+        };
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccessChanged(CourseAccessChangedEvent event) {
+        cache.keySet().removeIf(key ->
+                (event.courseId() == null || event.courseId().equals(key.courseId()))
+                        && (event.userId() == null || event.userId().equals(key.userId())));
+    }
+}
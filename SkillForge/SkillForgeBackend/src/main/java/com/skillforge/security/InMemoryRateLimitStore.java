@@ -0,0 +1,51 @@
+package com.skillforge.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as GCRA: each key holds a single
+ * "theoretical arrival time" updated with compare-and-set, which behaves exactly
+ * like a bucket of {@code limit} tokens refilled continuously over {@code period}.
+ * The map is a ConcurrentHashMap, so contention is striped across its bins.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    @Override
+    public long tryConsume(String key, RateLimitPolicy policy) {
+        long interval = policy.emissionIntervalNanos();
+        long burst = interval * policy.limit();
+        AtomicLong tat = buckets.computeIfAbsent(policy.name() + ':' + key, k -> new AtomicLong(System.nanoTime()));
+
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long overshoot = next - now - burst;
+            if (overshoot > 0) {
+                return overshoot;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they are equivalent to a new one
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+}
@@ -1,9 +1,13 @@
 package com.skillforge.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -18,60 +22,61 @@ import java.util.Collections;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    /**
+     * Signed file links are verified by their own HMAC; skip token work on them
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + SignedUrlService.PREFIX);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
-        final String requestURI = request.getRequestURI();
-        final String method = request.getMethod();
-
-        System.out.println("\n=== JWT FILTER START ===");
-        System.out.println("Request: " + method + " " + requestURI);
-        System.out.println("Authorization Header Present: " + (authorizationHeader != null));
 
         String email = null;
-        String jwt = null;
-        String role = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                email = jwtUtil.getEmailFromToken(jwt);
-                role = jwtUtil.getRoleFromToken(jwt);
-                System.out.println("✓ Token parsed successfully");
-                System.out.println("  Email: " + email);
-                System.out.println("  Role: " + role);
-                System.out.println("  Authority to set: ROLE_" + role);
-            } catch (Exception e) {
-                System.out.println("✗ Error parsing token: " + e.getMessage());
-                e.printStackTrace();
+                // Signature and expiry are checked once here; the claims are then trusted
+                Claims claims = jwtUtil.verifyToken(jwt);
+                if (tokenRevocationService.isRevoked(claims)) {
+                    log.debug("Revoked bearer token on {} {}", request.getMethod(), request.getRequestURI());
+                } else {
+                    email = claims.getSubject();
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("Rejected bearer token on {} {}: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
             }
-        } else {
-            System.out.println("✗ No Bearer token found");
         }
 
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            System.out.println("Validating token for email: " + email);
-            if (jwtUtil.validateToken(jwt, email)) {
-                System.out.println("✓ Token validation SUCCESS");
+            // Current role comes from the user record, so role changes apply without a new token
+            AuthenticatedUser principal = userPrincipalCache.resolve(email).orElse(null);
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        email, null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)));
+                        principal, null,
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + principal.getRole().name())));
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("✓ Authentication set: " + email);
-                System.out.println("  Authorities: " + authToken.getAuthorities());
             } else {
-                System.out.println("✗ Token validation FAILED");
+                log.debug("Token subject {} no longer exists", email);
             }
-        } else {
-            System.out.println("Skipping auth setup - email=" + email + ", existing-auth=" + (SecurityContextHolder.getContext().getAuthentication() != null));
         }
-        System.out.println("=== JWT FILTER END ===\n");
         chain.doFilter(request, response);
     }
 }
-
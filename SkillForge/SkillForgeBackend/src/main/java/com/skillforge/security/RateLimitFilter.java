@@ -0,0 +1,128 @@
+package com.skillforge.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies every matching {@link RateLimitPolicy} to the request and answers
+ * 429 with Retry-After once a client's budget is spent. Runs after the JWT
+ * filter so user-keyed policies can see the principal.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    /** Auth request bodies are a few hundred bytes; anything past this is not parsed for the account */
+    private static final int MAX_ACCOUNT_BODY_BYTES = 8 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private List<RateLimitPolicy> policies;
+
+    @Autowired
+    private RateLimitStore rateLimitStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        for (RateLimitPolicy policy : policies) {
+            if (!policy.matcher().matches(request)) {
+                continue;
+            }
+            if (policy.keyType() == RateLimitPolicy.KeyType.ACCOUNT) {
+                // The account is in the body; read it ahead and hand the rest of the chain a replay
+                request = ReplayableBodyRequest.wrap(request, MAX_ACCOUNT_BODY_BYTES);
+            }
+            long waitNanos = rateLimitStore.tryConsume(clientKey(request, policy), policy);
+            if (waitNanos > 0) {
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                rejected(policy).increment();
+                log.debug("Rate limit '{}' exceeded on {} {}", policy.name(), request.getMethod(), request.getRequestURI());
+
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Too many requests, please retry later\",\"retryAfterSeconds\":"
+                        + retryAfterSeconds + "}");
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String clientKey(HttpServletRequest request, RateLimitPolicy policy) {
+        if (policy.keyType() == RateLimitPolicy.KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return "user:" + user.getId();
+            }
+        }
+        if (policy.keyType() == RateLimitPolicy.KeyType.ACCOUNT && request instanceof ReplayableBodyRequest replayable) {
+            return "account:" + request.getRemoteAddr() + ":" + account(replayable);
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * The account an auth request is for: the "email" query parameter or JSON field,
+     * or a digest of the "refreshToken" field; empty if none can be read
+     */
+    private String account(ReplayableBodyRequest request) {
+        String email = request.getParameter("email");
+        if (email != null && !email.isBlank()) {
+            return email.trim().toLowerCase(Locale.ROOT);
+        }
+        try {
+            JsonNode body = objectMapper.readTree(request.getHead());
+            if (body != null && body.hasNonNull("email")) {
+                return body.get("email").asText().trim().toLowerCase(Locale.ROOT);
+            }
+            if (body != null && body.hasNonNull("refreshToken")) {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(body.get("refreshToken").asText().getBytes(StandardCharsets.UTF_8));
+                return "refresh:" + HexFormat.of().formatHex(digest, 0, 12);
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            // Malformed or truncated body: the controller rejects it; limit by address alone
+        }
+        return "";
+    }
+
+    private Counter rejected(RateLimitPolicy policy) {
+        return Counter.builder("http.rate_limit.rejected")
+                .description("Requests rejected by a rate limit policy")
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.skillforge.security;
+
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.time.Duration;
+
+/**
+ * Request budget for a group of routes: at most {@code limit} requests per
+ * {@code period} for each client, where the client is the caller's IP or, for
+ * {@link KeyType#USER}, the authenticated user (falling back to IP when anonymous),
+ * or for {@link KeyType#ACCOUNT} the IP together with the account named in the
+ * request. Declare a {@code RateLimitPolicy} bean to add one.
+ */
+public record RateLimitPolicy(String name, RequestMatcher matcher, KeyType keyType, int limit, Duration period) {
+
+    public enum KeyType {
+        IP,
+        USER,
+        /** IP plus the email (or refresh token) in the request, so users behind one address do not share a budget */
+        ACCOUNT
+    }
+
+    public RateLimitPolicy {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Rate limit '" + name + "' needs a limit above 0, got " + limit);
+        }
+        if (period == null || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Rate limit '" + name + "' needs a positive period, got " + period);
+        }
+    }
+
+    /**
+     * Time between two requests at the sustained rate
+     */
+    public long emissionIntervalNanos() {
+        return period.toNanos() / limit;
+    }
+}
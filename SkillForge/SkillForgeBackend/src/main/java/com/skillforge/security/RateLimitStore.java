@@ -0,0 +1,16 @@
+package com.skillforge.security;
+
+/**
+ * Backing state for {@link RateLimitFilter}. The default is per-node and in memory;
+ * when several nodes must share one budget, declare a bean backed by a shared store
+ * (e.g. Redis with an atomic script) and the in-memory one steps aside.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Try to take one request from the key's budget
+     *
+     * @return 0 if allowed, otherwise nanoseconds until the next request would be allowed
+     */
+    long tryConsume(String key, RateLimitPolicy policy);
+}
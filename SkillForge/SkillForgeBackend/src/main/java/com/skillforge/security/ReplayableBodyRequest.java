@@ -0,0 +1,92 @@
+package com.skillforge.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request whose first bytes of body have been read ahead (e.g. by a filter that
+ * needs a field from it) and are replayed, followed by the rest of the original
+ * stream, to whoever reads the body next
+ */
+class ReplayableBodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] head;
+    private final InputStream body;
+
+    private ReplayableBodyRequest(HttpServletRequest request, byte[] head) throws IOException {
+        super(request);
+        this.head = head;
+        this.body = new SequenceInputStream(new ByteArrayInputStream(head), request.getInputStream());
+    }
+
+    /**
+     * Read up to {@code maxBytes} of the body ahead
+     */
+    static ReplayableBodyRequest wrap(HttpServletRequest request, int maxBytes) throws IOException {
+        if (request instanceof ReplayableBodyRequest replayable) {
+            return replayable;
+        }
+        return new ReplayableBodyRequest(request, request.getInputStream().readNBytes(maxBytes));
+    }
+
+    /**
+     * The bytes read ahead; the whole body when it was no longer than the limit
+     */
+    byte[] getHead() {
+        return head;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            private boolean finished;
+
+            @Override
+            public int read() throws IOException {
+                int b = body.read();
+                finished = b < 0;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = body.read(buffer, offset, length);
+                finished = n < 0;
+                return n;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return finished;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException("Async reads are not supported on a replayed body");
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+}
@@ -0,0 +1,97 @@
+package com.skillforge.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Short-lived download URLs for stored files. The URL carries the storage path,
+ * expiry, user and download name, with an HMAC-SHA256 over all of them, so the
+ * {@code /files/**} handler can serve the file after checking only the signature,
+ * with no token parsing and no database access. Access is decided when the URL is
+ * issued, by the endpoint that issues it.
+ */
+@Component
+public class SignedUrlService {
+
+    public static final String PREFIX = "/files/";
+
+    @Value("${app.storage.signed-url.secret:${app.jwt.secret}}")
+    private String secret;
+
+    @Value("${app.storage.signed-url.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public record SignedFile(String storagePath, long expiresAt, Long userId, String downloadName, boolean attachment) {
+    }
+
+    /**
+     * Path and query of a signed URL for {@code storagePath}, relative to the context path
+     */
+    public String sign(String storagePath, Long userId, String downloadName, boolean attachment) {
+        String path = normalize(storagePath);
+        long expiresAt = Instant.now().getEpochSecond() + ttlSeconds;
+        String disposition = attachment ? "attachment" : "inline";
+        String signature = hmac(canonical(path, expiresAt, userId, disposition, downloadName));
+
+        return PREFIX + UriUtils.encodePath(path, StandardCharsets.UTF_8)
+                + "?exp=" + expiresAt
+                + "&uid=" + userId
+                + "&disp=" + disposition
+                + "&name=" + UriUtils.encodeQueryParam(downloadName, StandardCharsets.UTF_8)
+                + "&sig=" + signature;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * The file a request may read, or null if the signature is wrong or expired
+     */
+    public SignedFile verify(String path, String exp, String uid, String disp, String name, String sig) {
+        if (path == null || exp == null || uid == null || disp == null || name == null || sig == null) {
+            return null;
+        }
+        try {
+            long expiresAt = Long.parseLong(exp);
+            Long userId = Long.valueOf(uid);
+            if (expiresAt < Instant.now().getEpochSecond()) {
+                return null;
+            }
+            byte[] expected = hmac(canonical(path, expiresAt, userId, disp, name)).getBytes(StandardCharsets.US_ASCII);
+            if (!MessageDigest.isEqual(expected, sig.getBytes(StandardCharsets.US_ASCII))) {
+                return null;
+            }
+            return new SignedFile(path, expiresAt, userId, name, "attachment".equals(disp));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static String normalize(String storagePath) {
+        return storagePath.replace('\\', '/');
+    }
+
+    private static String canonical(String path, long expiresAt, Long userId, String disposition, String name) {
+        return path + "\n" + expiresAt + "\n" + userId + "\n" + disposition + "\n" + name;
+    }
+
+    private String hmac(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
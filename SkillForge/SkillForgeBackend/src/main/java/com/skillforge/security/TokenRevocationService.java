@@ -0,0 +1,132 @@
+package com.skillforge.security;
+
+import com.skillforge.entity.TokenRevocation;
+import com.skillforge.repository.TokenRevocationRepository;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access-token revocation checked by the JWT filter on every request.
+ *
+ * Revocations are written to token_revocations and mirrored in two in-memory maps
+ * (revoked token IDs, and per-subject "issued before" cutoffs), so the per-request
+ * check is a couple of hash lookups. Each node pulls revocations made elsewhere
+ * every app.jwt.revocation-sync-ms. Entries disappear once every token they could
+ * match has expired, which keeps the set as small as the access-token lifetime.
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private TokenRevocationRepository revocationRepository;
+
+    @Value("${app.jwt.expiration}")
+    private long accessTokenTtlMs;
+
+    private record Cutoff(long issuedBeforeEpochSecond, long expiresAtMillis) {
+    }
+
+    // jti -> expiry of the revoked token (epoch millis)
+    private final Map<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+    private final Map<String, Cutoff> subjectCutoffs = new ConcurrentHashMap<>();
+    private volatile long lastSyncedId;
+
+    public boolean isRevoked(Claims claims) {
+        if (revokedTokenIds.isEmpty() && subjectCutoffs.isEmpty()) {
+            return false;
+        }
+        String jti = claims.getId();
+        if (jti != null && revokedTokenIds.containsKey(jti)) {
+            return true;
+        }
+        Cutoff cutoff = subjectCutoffs.get(claims.getSubject());
+        Date issuedAt = claims.getIssuedAt();
+        return cutoff != null && issuedAt != null
+                && issuedAt.getTime() / 1000 < cutoff.issuedBeforeEpochSecond();
+    }
+
+    /**
+     * Revoke one access token (logout)
+     */
+    public void revokeToken(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setJti(claims.getId());
+        revocation.setSubject(claims.getSubject());
+        revocation.setExpiresAt(toLocalDateTime(claims.getExpiration().getTime()));
+        apply(revocationRepository.save(revocation));
+    }
+
+    /**
+     * Revoke every access token issued to the subject until now. Precision is one
+     * second (the resolution of the iat claim), so a token issued in the same
+     * second as the revocation stays valid.
+     */
+    public void revokeAllForSubject(String subject) {
+        long now = System.currentTimeMillis();
+        TokenRevocation revocation = new TokenRevocation();
+        revocation.setSubject(subject);
+        revocation.setIssuedBefore(now / 1000);
+        revocation.setExpiresAt(toLocalDateTime(now + accessTokenTtlMs));
+        apply(revocationRepository.save(revocation));
+    }
+
+    /**
+     * Pull revocations made by other nodes and forget expired ones
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-sync-ms:10000}")
+    public void sync() {
+        List<TokenRevocation> added = revocationRepository
+                .findByIdGreaterThanAndExpiresAtAfterOrderByIdAsc(lastSyncedId, LocalDateTime.now());
+        for (TokenRevocation revocation : added) {
+            apply(revocation);
+            // Only the sync advances the cursor: a local write may have a higher ID
+            // than another node's revocation that has not been pulled yet
+            lastSyncedId = Math.max(lastSyncedId, revocation.getId());
+        }
+
+        long now = System.currentTimeMillis();
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt < now);
+        subjectCutoffs.values().removeIf(cutoff -> cutoff.expiresAtMillis() < now);
+    }
+
+    @Scheduled(cron = "${app.jwt.revocation-purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        int purged = revocationRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired token revocations", purged);
+        }
+    }
+
+    private synchronized void apply(TokenRevocation revocation) {
+        long expiresAt = revocation.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (revocation.getJti() != null) {
+            revokedTokenIds.put(revocation.getJti(), expiresAt);
+        } else if (revocation.getSubject() != null && revocation.getIssuedBefore() != null) {
+            subjectCutoffs.merge(revocation.getSubject(),
+                    new Cutoff(revocation.getIssuedBefore(), expiresAt),
+                    (a, b) -> a.issuedBeforeEpochSecond() >= b.issuedBeforeEpochSecond() ? a : b);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
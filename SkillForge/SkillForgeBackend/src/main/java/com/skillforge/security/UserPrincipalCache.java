@@ -0,0 +1,66 @@
+package com.skillforge.security;
+
+import com.skillforge.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small cache of resolved principals by email, so authenticating a request does
+ * not cost a SELECT on users. Entries expire after a TTL as a safety net; role
+ * changes and deletes evict them immediately.
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.security.principal-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private record Entry(AuthenticatedUser user, long loadedAtMillis) {
+    }
+
+    /**
+     * The principal for the email, or empty if the user no longer exists
+     */
+    public Optional<AuthenticatedUser> resolve(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(email);
+        if (entry != null && now - entry.loadedAtMillis() < ttlMs) {
+            return Optional.of(entry.user());
+        }
+
+        Optional<AuthenticatedUser> loaded = userRepository.findByEmail(email).map(AuthenticatedUser::from);
+        if (loaded.isPresent()) {
+            if (cache.size() >= maxSize) {
+                cache.values().removeIf(e -> now - e.loadedAtMillis() >= ttlMs);
+                if (cache.size() >= maxSize) {
+                    cache.clear();
+                }
+            }
+            cache.put(email, new Entry(loaded.get(), now));
+        } else {
+            cache.remove(email);
+        }
+        return loaded;
+    }
+
+    public void evict(String email) {
+        cache.remove(email);
+    }
+
+    public void evictById(Long userId) {
+        cache.values().removeIf(e -> e.user().getId().equals(userId));
+    }
+}
@@ -0,0 +1,123 @@
+package com.skillforge.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker for calls to ai-service.
+ *
+ * CLOSED: calls pass; after failure-threshold consecutive failures the circuit opens.
+ * OPEN: calls are rejected immediately until open-duration has elapsed.
+ * HALF_OPEN: a single probe call is let through; success closes the circuit,
+ * failure opens it again for another open-duration.
+ *
+ * The state is published as the gauge ai.circuit.state (0 = closed, 1 = open, 2 = half-open).
+ */
+@Component
+public class AiCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ai.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.ai.circuit.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("ai.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("AI service circuit state (0=closed, 1=open, 2=half-open)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ask permission for one call. Every permitted call must be followed by
+     * onSuccess() or onFailure().
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                logger.info("AI circuit half-open, sending probe request");
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("AI circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Return a permission that was not used for a call (e.g. the caller was rejected by the bulkhead)
+     */
+    public synchronized void releasePermission() {
+        probeInFlight = false;
+    }
+
+    /**
+     * True while calls are being rejected outright (open and still cooling down)
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openDurationMs;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        logger.warn("AI circuit opened after {} consecutive failures; rejecting calls for {} ms",
+                consecutiveFailures, openDurationMs);
+    }
+}
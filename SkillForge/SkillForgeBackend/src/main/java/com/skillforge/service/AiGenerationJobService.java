@@ -0,0 +1,291 @@
+package com.skillforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillforge.dto.AiQuestionResponse;
+import com.skillforge.entity.AiGenerationJob;
+import com.skillforge.entity.Exam;
+import com.skillforge.entity.User;
+import com.skillforge.exception.AiServiceUnavailableException;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.repository.AiGenerationJobRepository;
+import com.skillforge.repository.ExamRepository;
+import com.skillforge.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Durable queue for AI generation requests.
+ *
+ * Jobs are stored in ai_generation_jobs and dispatched by a scheduler that takes one
+ * AiRateLimiter token per job, so the backend never calls ai-service faster than it
+ * accepts. Dispatch is round-robin across instructors: the instructor who was served
+ * least recently gets the next token. Jobs still QUEUED at shutdown are picked up
+ * again after a restart; jobs left RUNNING by a stopped node are re-queued once they
+ * are older than stale-after-ms.
+ */
+@Service
+public class AiGenerationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiGenerationJobService.class);
+
+    @Autowired
+    private AiGenerationJobRepository jobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private AiQuestionService aiQuestionService;
+
+    @Autowired
+    private AiRateLimiter aiRateLimiter;
+
+    @Autowired
+    private AiCircuitBreaker aiCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("aiGenerationExecutor")
+    private Executor aiGenerationExecutor;
+
+    @Value("${app.ai.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ai.jobs.max-queued-per-instructor:20}")
+    private int maxQueuedPerInstructor;
+
+    /** Must exceed the longest a job can run (connect plus read timeout) */
+    @Value("${app.ai.jobs.stale-after-ms:900000}")
+    private long staleAfterMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Instructor ID -> time of last dispatch (System.nanoTime), used for round-robin fairness
+    private final Map<Long, Long> lastDispatchByInstructor = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        // Evaluated on scrape only, so the count query runs once per scrape interval
+        Gauge.builder("ai.jobs.queue.depth", this, AiGenerationJobService::getQueueDepth)
+                .description("AI generation jobs waiting to be dispatched")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Re-queue jobs left RUNNING by a node that stopped. Other nodes may still be
+     * running theirs, so only jobs started longer ago than any run can take count.
+     */
+    @Scheduled(fixedDelayString = "${app.ai.jobs.stale-sweep-interval-ms:60000}")
+    public void recoverInterruptedJobs() {
+        int requeued = jobRepository.requeueInterrupted(LocalDateTime.now().minus(Duration.ofMillis(staleAfterMs)));
+        if (requeued > 0) {
+            logger.info("Re-queued {} AI generation jobs running for over {} ms", requeued, staleAfterMs);
+        }
+    }
+
+    /**
+     * Queue a generation request for the instructor
+     */
+    public AiGenerationJob submitJob(String instructorEmail, Long examId, String courseName, String topic,
+                                     String difficulty, Integer numberOfQuestions) {
+        User instructor = userRepository.findByEmail(instructorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("Instructor not found"));
+
+        if (topic == null || topic.trim().isEmpty()) {
+            throw new InvalidRequestException("Topic is required");
+        }
+        if (numberOfQuestions == null || numberOfQuestions < 1 || numberOfQuestions > 100) {
+            throw new InvalidRequestException("Number of questions must be between 1 and 100");
+        }
+
+        if (examId != null && examId != 0) {
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Exam not found with ID: " + examId));
+            if (!exam.getInstructor().getId().equals(instructor.getId())) {
+                throw new ForbiddenAccessException("You can only generate questions for your own exams");
+            }
+        }
+
+        long queued = jobRepository.countByInstructorAndStatus(instructor, AiGenerationJob.JobStatus.QUEUED);
+        if (queued >= maxQueuedPerInstructor) {
+            throw new InvalidRequestException("You already have " + queued + " generation jobs waiting");
+        }
+
+        AiGenerationJob job = new AiGenerationJob();
+        job.setInstructor(instructor);
+        job.setExamId(examId != null && examId != 0 ? examId : null);
+        job.setCourseName(courseName);
+        job.setTopic(topic.trim());
+        job.setDifficulty(difficulty);
+        job.setNumberOfQuestions(numberOfQuestions);
+
+        AiGenerationJob saved = jobRepository.save(job);
+        logger.info("Queued AI generation job {} for instructor {}", saved.getId(), instructorEmail);
+        return saved;
+    }
+
+    /**
+     * Get a job owned by the instructor
+     */
+    public AiGenerationJob getJobForInstructor(Long jobId, String instructorEmail) {
+        AiGenerationJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found with ID: " + jobId));
+        User instructor = userRepository.findByEmail(instructorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("Instructor not found"));
+        if (!job.getInstructor().getId().equals(instructor.getId())) {
+            throw new ForbiddenAccessException("You can only view your own generation jobs");
+        }
+        return job;
+    }
+
+    public List<AiGenerationJob> getJobsForInstructor(String instructorEmail) {
+        User instructor = userRepository.findByEmail(instructorEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("Instructor not found"));
+        return jobRepository.findByInstructorOrderByCreatedAtDesc(instructor);
+    }
+
+    /**
+     * Number of queued jobs ahead of this one, or 0 if it is no longer queued
+     */
+    public long getQueuePosition(AiGenerationJob job) {
+        if (job.getStatus() != AiGenerationJob.JobStatus.QUEUED) {
+            return 0;
+        }
+        return jobRepository.countQueuedBefore(job.getId());
+    }
+
+    public long getQueueDepth() {
+        return jobRepository.countByStatus(AiGenerationJob.JobStatus.QUEUED);
+    }
+
+    /**
+     * Deserialize the generated questions of a completed job
+     */
+    public AiQuestionResponse readResult(AiGenerationJob job) {
+        if (job.getResultJson() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(job.getResultJson(), AiQuestionResponse.class);
+        } catch (Exception e) {
+            logger.error("Corrupt result stored for AI job {}", job.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Dispatch queued jobs while rate-limit tokens are available
+     */
+    @Scheduled(fixedDelayString = "${app.ai.jobs.poll-interval-ms:1000}")
+    public void dispatchJobs() {
+        if (aiCircuitBreaker.isOpen()) {
+            // Keep tokens and attempts for when the AI service is back
+            return;
+        }
+        while (true) {
+            List<AiGenerationJob> heads = jobRepository.findQueueHeadsPerInstructor();
+            if (heads.isEmpty()) {
+                return;
+            }
+            long token = aiRateLimiter.tryAcquireToken();
+            if (token == AiRateLimiter.NO_TOKEN) {
+                return;
+            }
+
+            AiGenerationJob next = heads.stream()
+                    .min(Comparator.<AiGenerationJob>comparingLong(
+                                    j -> lastDispatchByInstructor.getOrDefault(j.getInstructor().getId(), Long.MIN_VALUE))
+                            .thenComparing(AiGenerationJob::getId))
+                    .get();
+
+            if (jobRepository.claim(next.getId(), LocalDateTime.now()) == 0) {
+                // Another node or worker took it; no call was made with this token
+                aiRateLimiter.release(token);
+                continue;
+            }
+            lastDispatchByInstructor.put(next.getInstructor().getId(), System.nanoTime());
+
+            Long jobId = next.getId();
+            try {
+                aiGenerationExecutor.execute(() -> runJob(jobId, token));
+            } catch (RejectedExecutionException e) {
+                logger.warn("AI executor saturated, returning job {} to the queue", jobId);
+                aiRateLimiter.release(token);
+                jobRepository.findById(jobId).ifPresent(job -> {
+                    job.setStatus(AiGenerationJob.JobStatus.QUEUED);
+                    job.setAttempts(Math.max(0, job.getAttempts() - 1));
+                    jobRepository.save(job);
+                });
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param token rate-limit token taken by dispatchJobs, given back if the call is not made
+     */
+    private void runJob(Long jobId, long token) {
+        AiGenerationJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            aiRateLimiter.release(token);
+            return;
+        }
+
+        try {
+            AiQuestionResponse response = aiQuestionService.generateQuestions(
+                    job.getCourseName(), job.getTopic(), job.getDifficulty(), job.getNumberOfQuestions());
+            response.setQuestions(aiQuestionService.validateQuestions(response.getQuestions()));
+            response.setCount(response.getQuestions().size());
+
+            job.setResultJson(objectMapper.writeValueAsString(response));
+            job.setStatus(AiGenerationJob.JobStatus.COMPLETED);
+            job.setErrorMessage(null);
+            job.setCompletedAt(LocalDateTime.now());
+            logger.info("AI generation job {} completed with {} questions", jobId, response.getCount());
+        } catch (AiServiceUnavailableException e) {
+            // Rejected locally by the circuit breaker or bulkhead: the call never happened
+            aiRateLimiter.release(token);
+            job.setStatus(AiGenerationJob.JobStatus.QUEUED);
+            job.setAttempts(Math.max(0, job.getAttempts() - 1));
+            job.setErrorMessage(e.getMessage());
+            logger.info("AI generation job {} deferred: {}", jobId, e.getMessage());
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            job.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+            if (job.getAttempts() < maxAttempts) {
+                job.setStatus(AiGenerationJob.JobStatus.QUEUED);
+                logger.warn("AI generation job {} failed (attempt {}/{}), re-queued", jobId, job.getAttempts(), maxAttempts);
+            } else {
+                job.setStatus(AiGenerationJob.JobStatus.FAILED);
+                job.setCompletedAt(LocalDateTime.now());
+                logger.error("AI generation job {} failed permanently", jobId, e);
+            }
+        }
+
+        jobRepository.save(job);
+    }
+}
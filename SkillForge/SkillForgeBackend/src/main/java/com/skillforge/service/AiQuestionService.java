@@ -5,22 +5,47 @@ import com.skillforge.dto.AiQuestionRequest;
 import com.skillforge.dto.AiQuestionResponse;
 import com.skillforge.entity.Exam;
 import com.skillforge.entity.Question;
+import com.skillforge.exception.AiServiceUnavailableException;
+import com.skillforge.exception.ServiceBusyException;
+import com.skillforge.repository.ExamRepository;
 import com.skillforge.repository.QuestionRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Service
 public class AiQuestionService {
@@ -28,19 +53,67 @@ public class AiQuestionService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AiRateLimiter aiRateLimiter;
+
+    @Autowired
+    private AiCircuitBreaker aiCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    @Qualifier("aiGenerationExecutor")
+    private Executor aiGenerationExecutor;
+
     @Value("${app.ai.service.url:http://localhost:8001}")
     private String aiServiceUrl;
 
+    @Value("${app.ai.chunk-size:10}")
+    private int chunkSize;
+
+    @Value("${app.ai.chunk-max-attempts:3}")
+    private int chunkMaxAttempts;
+
+    @Value("${app.ai.bulkhead.max-wait-ms:500}")
+    private long bulkheadMaxWaitMs;
+
+    @Value("${app.ai.fallback-to-question-bank:true}")
+    private boolean fallbackToQuestionBank;
+
     private static final Logger log = LoggerFactory.getLogger(AiQuestionService.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final RestTemplate restTemplate;
 
-    public AiQuestionService() {
+    // Bulkhead: caps concurrent in-flight calls to the AI service so a slow upstream
+    // cannot tie up every request thread
+    private final Semaphore bulkhead;
+
+    public AiQuestionService(@Value("${app.ai.connect-timeout-ms:10000}") int connectTimeoutMs,
+                             @Value("${app.ai.read-timeout-ms:300000}") int readTimeoutMs,
+                             @Value("${app.ai.bulkhead.max-concurrent:4}") int bulkheadMaxConcurrent) {
         // Configure RestTemplate with increased timeouts for AI service
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000); // 10 seconds to connect
-        factory.setReadTimeout(300000);   // 5 minutes to read response (supports up to 100 questions)
+        factory.setConnectTimeout(connectTimeoutMs);
+        factory.setReadTimeout(readTimeoutMs);   // default 5 minutes (supports up to 100 questions)
         this.restTemplate = new RestTemplate(factory);
+        this.bulkhead = new Semaphore(bulkheadMaxConcurrent);
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("ai.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free slots for concurrent AI service calls")
+                .register(meterRegistry);
     }
 
     private void logRequest(String url, AiQuestionRequest request) {
@@ -63,6 +136,9 @@ public class AiQuestionService {
 
     /**
      * Generate questions using AI service
+     * Guarded by the circuit breaker and the bulkhead: while the circuit is open, or when
+     * every bulkhead slot stays busy for app.ai.bulkhead.max-wait-ms, this fails fast with
+     * AiServiceUnavailableException instead of waiting on the connection timeouts.
      * 
      * @param courseName The name of the course
      * @param topic The topic for question generation
@@ -72,6 +148,110 @@ public class AiQuestionService {
      */
     public AiQuestionResponse generateQuestions(String courseName, String topic,
                                                 String difficulty, Integer numberOfQuestions) {
+        if (!aiCircuitBreaker.tryAcquirePermission()) {
+            throw new AiServiceUnavailableException("AI service is temporarily unavailable, please try again shortly");
+        }
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadMaxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // Not a signal about upstream health: hand the permission back without recording anything
+            aiCircuitBreaker.releasePermission();
+            throw new AiServiceUnavailableException("Too many AI generation requests in progress, please try again shortly");
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            AiQuestionResponse response = callAiService(courseName, topic, difficulty, numberOfQuestions);
+            aiCircuitBreaker.onSuccess();
+            outcome = "success";
+            return response;
+        } catch (HttpClientErrorException clientEx) {
+            // 4xx means the service is up and rejected this request; only 429 indicates overload
+            if (clientEx.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                aiCircuitBreaker.onFailure();
+            } else {
+                aiCircuitBreaker.onSuccess();
+            }
+            throw new RuntimeException("AI service error: " + clientEx.getStatusCode() + " - " + clientEx.getResponseBodyAsString(), clientEx);
+        } catch (RuntimeException e) {
+            aiCircuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+            sample.stop(Timer.builder("ai.generation")
+                    .description("AI service call latency")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Generate questions, falling back to a random sample from the local question bank
+     * (same course, questions mentioning the topic) when the AI service is unavailable.
+     * The response's difficulty is set to the requested one and its topic is prefixed
+     * with "[question bank]" so the client can tell the source.
+     */
+    public AiQuestionResponse generateQuestionsOrFallback(String courseName, String topic,
+                                                          String difficulty, Integer numberOfQuestions) {
+        try {
+            return generateQuestions(courseName, topic, difficulty, numberOfQuestions);
+        } catch (AiServiceUnavailableException e) {
+            if (!fallbackToQuestionBank) {
+                throw e;
+            }
+            List<AiGeneratedQuestion> sample = sampleFromQuestionBank(courseName, topic, numberOfQuestions);
+            if (sample.isEmpty()) {
+                throw e;
+            }
+            log.warn("AI service unavailable ({}), serving {} questions from the question bank", e.getMessage(), sample.size());
+            AiQuestionResponse response = new AiQuestionResponse();
+            response.setQuestions(sample);
+            response.setCourseName(courseName);
+            response.setTopic("[question bank] " + topic);
+            response.setDifficulty(difficulty);
+            response.setCount(sample.size());
+            return response;
+        }
+    }
+
+    /**
+     * Random sample of existing questions for the course, preferring questions that mention the topic
+     */
+    public List<AiGeneratedQuestion> sampleFromQuestionBank(String courseName, String topic, int numberOfQuestions) {
+        if (courseName == null || numberOfQuestions < 1) {
+            return new ArrayList<>();
+        }
+        List<Question> sample = new ArrayList<>();
+        if (topic != null && !topic.trim().isEmpty()) {
+            sample.addAll(questionRepository.sampleByCourseTitleAndTopic(
+                    courseName, topic.trim(), PageRequest.of(0, numberOfQuestions)));
+        }
+        if (sample.size() < numberOfQuestions) {
+            Set<Long> taken = sample.stream().map(Question::getId).collect(Collectors.toSet());
+            for (Question question : questionRepository.sampleByCourseTitle(courseName, PageRequest.of(0, numberOfQuestions))) {
+                if (sample.size() >= numberOfQuestions) {
+                    break;
+                }
+                if (taken.add(question.getId())) {
+                    sample.add(question);
+                }
+            }
+        }
+        return sample.stream()
+                .map(q -> new AiGeneratedQuestion(q.getQuestionText(), q.getOptionA(), q.getOptionB(),
+                        q.getOptionC(), q.getOptionD(), q.getCorrectOption()))
+                .collect(Collectors.toList());
+    }
+
+    private AiQuestionResponse callAiService(String courseName, String topic,
+                                             String difficulty, Integer numberOfQuestions) {
         // Prepare request
         AiQuestionRequest request = new AiQuestionRequest();
         request.setCourseName(courseName);
@@ -103,6 +283,9 @@ public class AiQuestionService {
             }
             throw new RuntimeException("AI service returned status " + response.getStatusCode());
 
+        } catch (HttpClientErrorException clientEx) {
+            log.error("AI service error: status={} body={}", clientEx.getStatusCode(), clientEx.getResponseBodyAsString());
+            throw clientEx;
         } catch (HttpStatusCodeException httpEx) {
             log.error("AI service error: status={} body={}", httpEx.getStatusCode(), httpEx.getResponseBodyAsString());
             throw new RuntimeException("AI service error: " + httpEx.getStatusCode() + " - " + httpEx.getResponseBodyAsString(), httpEx);
@@ -112,6 +295,146 @@ public class AiQuestionService {
         }
     }
 
+    /**
+     * Callback for chunked generation. Methods are invoked from executor threads,
+     * one call per chunk, in completion order.
+     */
+    public interface ChunkListener {
+        void onChunk(int chunkIndex, int totalChunks, List<AiGeneratedQuestion> questions);
+
+        void onChunkFailed(int chunkIndex, int totalChunks, Exception error);
+    }
+
+    /**
+     * Generate questions in chunks issued concurrently (bounded by the AI executor
+     * and paced by the shared AiRateLimiter). Each chunk is validated, de-duplicated
+     * against earlier chunks and handed to the listener as soon as it completes.
+     * A failing chunk is retried on its own; the other chunks are unaffected.
+     *
+     * Cancelling the returned future (e.g. when the client goes away) stops chunks
+     * that have not started and keeps running ones from retrying, so no more AI
+     * quota is spent on it.
+     *
+     * @return future that completes once every chunk has either succeeded or exhausted its retries
+     * @throws ServiceBusyException if the AI executor cannot queue every chunk; none are run then
+     */
+    public CompletableFuture<Void> generateQuestionsInChunks(String courseName, String topic,
+                                                             String difficulty, int numberOfQuestions,
+                                                             ChunkListener listener) {
+        int size = Math.max(1, chunkSize);
+        int totalChunks = (numberOfQuestions + size - 1) / size;
+        Set<String> seenQuestions = ConcurrentHashMap.newKeySet();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        try {
+            for (int i = 0; i < totalChunks; i++) {
+                final int chunkIndex = i;
+                final int count = Math.min(size, numberOfQuestions - i * size);
+                chunks.add(CompletableFuture.runAsync(() -> {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    try {
+                        AiQuestionResponse response = generateChunkWithRetry(courseName, topic, difficulty, count,
+                                chunkIndex, cancelled);
+                        List<AiGeneratedQuestion> valid = new ArrayList<>();
+                        for (AiGeneratedQuestion question : validateQuestions(response.getQuestions())) {
+                            if (seenQuestions.add(normalize(question.getQuestion()))) {
+                                valid.add(question);
+                            }
+                        }
+                        listener.onChunk(chunkIndex, totalChunks, valid);
+                    } catch (CancellationException e) {
+                        log.debug("AI chunk {}/{} cancelled", chunkIndex + 1, totalChunks);
+                    } catch (Exception e) {
+                        log.error("AI chunk {}/{} failed permanently", chunkIndex + 1, totalChunks, e);
+                        listener.onChunkFailed(chunkIndex, totalChunks, e);
+                    }
+                }, aiGenerationExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            cancelled.set(true);
+            chunks.forEach(chunk -> chunk.cancel(false));
+            throw new ServiceBusyException("AI generation is busy, please retry shortly", 5);
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]));
+        CompletableFuture<Void> result = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                cancelled.set(true);
+                chunks.forEach(chunk -> chunk.cancel(false));
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        all.whenComplete((ignored, error) -> result.complete(null));
+        return result;
+    }
+
+    private AiQuestionResponse generateChunkWithRetry(String courseName, String topic, String difficulty,
+                                                      int count, int chunkIndex, AtomicBoolean cancelled)
+            throws InterruptedException {
+        int maxAttempts = Math.max(1, chunkMaxAttempts);
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+            aiRateLimiter.acquire();
+            try {
+                return generateQuestions(courseName, topic, difficulty, count);
+            } catch (AiServiceUnavailableException e) {
+                // Rejected by the circuit breaker or bulkhead before any call was made
+                aiRateLimiter.release();
+                lastError = e;
+                log.warn("AI chunk {} attempt {}/{} not admitted: {}", chunkIndex + 1, attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    Thread.sleep(2000L * attempt);
+                }
+            } catch (RuntimeException e) {
+                lastError = e;
+                log.warn("AI chunk {} attempt {}/{} failed: {}", chunkIndex + 1, attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    Thread.sleep(2000L * attempt);
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Drop questions that are missing text or options, or whose correct option is not A-D
+     */
+    public List<AiGeneratedQuestion> validateQuestions(List<AiGeneratedQuestion> questions) {
+        List<AiGeneratedQuestion> valid = new ArrayList<>();
+        if (questions == null) {
+            return valid;
+        }
+        for (AiGeneratedQuestion question : questions) {
+            if (isBlank(question.getQuestion()) || isBlank(question.getOptionA()) || isBlank(question.getOptionB())
+                    || isBlank(question.getOptionC()) || isBlank(question.getOptionD())
+                    || isBlank(question.getCorrectOption())) {
+                continue;
+            }
+            String correct = question.getCorrectOption().trim().toUpperCase(Locale.ROOT);
+            if (!correct.matches("[ABCD]")) {
+                continue;
+            }
+            question.setCorrectOption(correct);
+            valid.add(question);
+        }
+        return valid;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
     /**
      * Generate and save questions to an exam
      * 
@@ -120,53 +443,66 @@ public class AiQuestionService {
      * @param topic The topic for question generation
      * @param difficulty The difficulty level
      * @param numberOfQuestions Number of questions to generate
-     * @return List of saved Question entities
+     * @return Number of questions saved
      */
     @Transactional
-    public List<Question> generateAndSaveQuestions(Exam exam, String courseName, 
-                                                   String topic, String difficulty, 
-                                                   Integer numberOfQuestions) {
+    public int generateAndSaveQuestions(Exam exam, String courseName,
+                                        String topic, String difficulty,
+                                        Integer numberOfQuestions) {
         // Generate questions from AI service
         AiQuestionResponse aiResponse = generateQuestions(courseName, topic, difficulty, numberOfQuestions);
 
-        List<Question> savedQuestions = new ArrayList<>();
-        
-        if (aiResponse != null && aiResponse.getQuestions() != null) {
-            int order = getNextQuestionOrder(exam);
+        if (aiResponse == null || aiResponse.getQuestions() == null) {
+            return 0;
+        }
+        return saveQuestionsInBatch(exam, aiResponse.getQuestions(), "MULTIPLE_CHOICE");
+    }
 
-            for (AiGeneratedQuestion aiQuestion : aiResponse.getQuestions()) {
-                Question question = new Question();
-                question.setExam(exam);
-                question.setQuestionText(aiQuestion.getQuestion());
-                question.setOptionA(aiQuestion.getOptionA());
-                question.setOptionB(aiQuestion.getOptionB());
-                question.setOptionC(aiQuestion.getOptionC());
-                question.setOptionD(aiQuestion.getOptionD());
-                question.setCorrectOption(aiQuestion.getCorrectOption());
-                question.setQuestionType("MULTIPLE_CHOICE");
-                question.setMarks(1.0);
-                question.setQuestionOrder(order++);
+    /**
+     * Append questions to an exam in a single JDBC batch.
+     *
+     * Bumps Exam.totalQuestions first (which locks the exam row), reads the current
+     * max question order with one aggregate query, then inserts every question in
+     * one batch, so the cost no longer grows with a round trip per question.
+     *
+     * @return number of questions inserted
+     */
+    @Transactional
+    public int saveQuestionsInBatch(Exam exam, List<AiGeneratedQuestion> questions, String questionType) {
+        if (questions == null || questions.isEmpty()) {
+            return 0;
+        }
 
-                Question savedQuestion = questionRepository.save(question);
-                savedQuestions.add(savedQuestion);
-            }
+        examRepository.incrementTotalQuestions(exam.getId(), questions.size());
+        int firstOrder = getNextQuestionOrder(exam);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> rows = new ArrayList<>(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            AiGeneratedQuestion q = questions.get(i);
+            rows.add(new Object[] {
+                    exam.getId(), q.getQuestion(), q.getOptionA(), q.getOptionB(), q.getOptionC(),
+                    q.getOptionD(), q.getCorrectOption(), questionType, 1.0, firstOrder + i, now
+            });
         }
 
-        return savedQuestions;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO questions (exam_id, question_text, option_a, option_b, option_c, option_d, " +
+                "correct_option, question_type, marks, question_order, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows);
+        // Hibernate does not see JDBC writes; cached question lists are dropped after commit
+        eventPublisher.publishEvent(new QuestionsBatchInsertedEvent(exam.getId()));
+
+        log.info("Saved {} questions to exam {} in one batch", questions.size(), exam.getId());
+        return questions.size();
     }
 
     /**
      * Get the next question order number for an exam
      */
     private int getNextQuestionOrder(Exam exam) {
-        List<Question> existingQuestions = questionRepository.findByExam(exam);
-        if (existingQuestions.isEmpty()) {
-            return 1;
-        }
-        return existingQuestions.stream()
-                .mapToInt(q -> q.getQuestionOrder() != null ? q.getQuestionOrder() : 0)
-                .max()
-                .orElse(0) + 1;
+        return questionRepository.findMaxQuestionOrder(exam.getId()) + 1;
     }
 
     /**
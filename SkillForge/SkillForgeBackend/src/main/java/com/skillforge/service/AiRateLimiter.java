@@ -0,0 +1,112 @@
+package com.skillforge.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Sliding-window limiter that mirrors the ai-service limit (MAX_REQUESTS_PER_WINDOW
+ * requests in any 60 second window). It keeps the dispatch times of the last
+ * requests-per-minute calls and only allows another once the oldest of them is a
+ * full window old, so no 60 second span ever holds more calls than ai-service
+ * accepts.
+ */
+@Component
+public class AiRateLimiter {
+
+    private static final long WINDOW_NANOS = 60_000_000_000L;
+
+    public static final long NO_TOKEN = Long.MIN_VALUE;
+
+    @Value("${app.ai.requests-per-minute:6}")
+    private int requestsPerMinute;
+
+    // Dispatch times (System.nanoTime) within the last window, oldest first
+    private final Deque<Long> dispatches = new ArrayDeque<>();
+
+    // What each thread's last tryAcquire() recorded, so release() gives back that one
+    private final ThreadLocal<Long> lastAcquired = new ThreadLocal<>();
+
+    /**
+     * Take a token if one is available, without waiting
+     */
+    public boolean tryAcquire() {
+        long token = tryAcquireToken();
+        if (token == NO_TOKEN) {
+            return false;
+        }
+        lastAcquired.set(token);
+        return true;
+    }
+
+    /**
+     * Take a token if one is available, without waiting, for a call that may be made
+     * on another thread
+     *
+     * @return handle to pass to {@link #release(long)}, or {@link #NO_TOKEN}
+     */
+    public synchronized long tryAcquireToken() {
+        long now = System.nanoTime();
+        expire(now);
+        if (dispatches.size() < capacity()) {
+            dispatches.addLast(now);
+            return now;
+        }
+        return NO_TOKEN;
+    }
+
+    /**
+     * Wait until a token is available and take it
+     */
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            Thread.sleep(Math.max(1L, millisUntilNextToken()));
+        }
+    }
+
+    /**
+     * Give back the token taken by this thread's last {@link #tryAcquire()} when no
+     * call was made with it
+     */
+    public void release() {
+        Long acquiredAt = lastAcquired.get();
+        if (acquiredAt != null) {
+            lastAcquired.remove();
+            release(acquiredAt);
+        }
+    }
+
+    /**
+     * Give back a token taken with {@link #tryAcquireToken()} when no call was made with it
+     */
+    public synchronized void release(long token) {
+        dispatches.removeLastOccurrence(token);
+    }
+
+    public synchronized long millisUntilNextToken() {
+        long now = System.nanoTime();
+        expire(now);
+        if (dispatches.size() < capacity()) {
+            return 0L;
+        }
+        long nanos = dispatches.peekFirst() + WINDOW_NANOS - now;
+        return (nanos + 999_999L) / 1_000_000L;
+    }
+
+    public synchronized double availableTokens() {
+        expire(System.nanoTime());
+        return Math.max(0, capacity() - dispatches.size());
+    }
+
+    private int capacity() {
+        return Math.max(1, requestsPerMinute);
+    }
+
+    private void expire(long now) {
+        while (!dispatches.isEmpty() && now - dispatches.peekFirst() >= WINDOW_NANOS) {
+            dispatches.pollFirst();
+        }
+    }
+}
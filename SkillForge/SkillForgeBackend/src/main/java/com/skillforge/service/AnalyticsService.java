@@ -4,11 +4,17 @@ import com.skillforge.entity.*;
 import com.skillforge.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Dashboard analytics. These are the heaviest reads in the application, so they
+ * run in read-only transactions, which the routing DataSource sends to the read
+ * replica when one is configured and keeping up.
+ */
 @Service
 public class AnalyticsService {
 
@@ -33,6 +39,9 @@ public class AnalyticsService {
     @Autowired
     private AssignmentSubmissionRepository submissionRepository;
 
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
     @Autowired
     private VideoRepository videoRepository;
 
@@ -48,6 +57,7 @@ public class AnalyticsService {
      * Get comprehensive analytics for a student
      * Only returns data for the authenticated student
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getStudentAnalytics(String email) {
         User student = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -302,6 +312,7 @@ public class AnalyticsService {
      * Get comprehensive analytics for an instructor
      * Only returns data for courses taught by the authenticated instructor
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getInstructorAnalytics(String email) {
         User instructor = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Instructor not found"));
@@ -558,6 +569,7 @@ public class AnalyticsService {
      * Get comprehensive platform analytics for admin
      * Returns global statistics across all users, courses, and activities
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getAdminAnalytics() {
         Map<String, Object> analytics = new HashMap<>();
         
@@ -754,18 +766,14 @@ public class AnalyticsService {
             } else {
                 assignmentsData.put("averageGradePercentage", 0.0);
             }
-            
-            // Total storage used
-            long totalStorage = allSubmissions.stream()
-                    .mapToLong(s -> s.getFileSize() != null ? s.getFileSize() : 0)
-                    .sum();
-            assignmentsData.put("totalStorageBytes", totalStorage);
         } else {
             assignmentsData.put("graded", 0);
             assignmentsData.put("pending", 0);
             assignmentsData.put("averageGradePercentage", 0.0);
-            assignmentsData.put("totalStorageBytes", 0);
         }
+
+        // Total storage used by submissions, from the running counter
+        assignmentsData.put("totalStorageBytes", storageQuotaService.getGlobalUsage().getSubmissionBytes());
         
         return assignmentsData;
     }
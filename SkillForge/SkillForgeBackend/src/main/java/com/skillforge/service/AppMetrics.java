@@ -0,0 +1,97 @@
+package com.skillforge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business meters for the exam and storage hot paths.
+ *
+ * Request latency, connection pool wait (hikaricp.*) and JVM meters come from
+ * Spring Boot's auto-configuration; histogram settings live in application.properties.
+ */
+@Component
+public class AppMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter submissions;
+    private Counter attemptsGraded;
+
+    @PostConstruct
+    public void registerMetrics() {
+        submissions = Counter.builder("exam.submissions")
+                .description("Exam submissions accepted")
+                .register(meterRegistry);
+        attemptsGraded = Counter.builder("exam.attempts.graded")
+                .description("Exam attempts graded")
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stop the exam.submit timer; call from a finally block so rejected and failed
+     * submissions are timed too
+     *
+     * @param outcome "success" or "error"
+     */
+    public void recordSubmission(Timer.Sample sample, String outcome) {
+        if ("success".equals(outcome)) {
+            submissions.increment();
+        }
+        sample.stop(Timer.builder("exam.submit")
+                .description("Time to accept and grade an exam submission")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Stop the exam.grade timer; as {@link #recordSubmission}
+     */
+    public void recordGrading(Timer.Sample sample, String outcome) {
+        if ("success".equals(outcome)) {
+            attemptsGraded.increment();
+        }
+        sample.stop(Timer.builder("exam.grade")
+                .description("Time to grade and persist an attempt")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    /**
+     * @param kind what was stored, e.g. "video", "resource", "submission"
+     */
+    public void recordUpload(String kind, long bytes) {
+        Counter.builder("storage.bytes.uploaded")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    public void recordDownload(String kind, long bytes) {
+        Counter.builder("storage.bytes.downloaded")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    /**
+     * @param kind what was reclaimed, e.g. "blob", "tmp", "legacy"
+     */
+    public void recordReclaimed(String kind, long bytes) {
+        Counter.builder("storage.bytes.reclaimed")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+}
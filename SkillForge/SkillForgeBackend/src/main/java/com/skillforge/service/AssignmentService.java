@@ -235,32 +235,6 @@ public class AssignmentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with ID: " + assignmentId));
     }
 
-    /**
-     * Check if user can access assignment
-     */
-    public boolean canAccessAssignment(Long assignmentId, String userEmail) {
-        Assignment assignment = getAssignmentById(assignmentId);
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        // Admin can access everything
-        if (user.getRole().equals(User.Role.ADMIN)) {
-            return true;
-        }
-
-        // Instructor can access their own course assignments
-        if (user.getRole().equals(User.Role.INSTRUCTOR)) {
-            return assignment.getCourse().getInstructor().getId().equals(user.getId());
-        }
-
-        // Student can access if enrolled
-        if (user.getRole().equals(User.Role.STUDENT)) {
-            return enrollmentRepository.findByStudentAndCourse(user, assignment.getCourse()).isPresent();
-        }
-
-        return false;
-    }
-
     /**
      * Get all assignments (Admin only)
      */
@@ -5,24 +5,38 @@ import com.skillforge.dto.AuthResponse;
 import com.skillforge.dto.ChangePasswordRequest;
 import com.skillforge.dto.RegisterRequest;
 import com.skillforge.entity.User;
+import com.skillforge.exception.ServiceBusyException;
 import com.skillforge.repository.UserRepository;
 import com.skillforge.security.JwtUtil;
+import com.skillforge.security.PasswordHashingService;
+import com.skillforge.security.TokenRevocationService;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AuthService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
     @Autowired
     private UserRepository userRepository;
 
+    // BCrypt runs on a bounded pool, not on the request thread
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             return new AuthResponse(null, null, null, null, "Email already registered");
@@ -48,44 +62,91 @@ public class AuthService {
 
         User user = new User();
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
         user.setName(request.getName());
         user.setRole(role);
 
         userRepository.save(user);
 
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
-        return new AuthResponse(token, user.getEmail(), user.getName(), user.getRole().name(), "Registration successful");
+        return issueTokens(user, refreshTokenService.issue(user), "Registration successful");
     }
 
     public AuthResponse changePassword(String email, ChangePasswordRequest request) {
-        User user = userRepository.findByEmail(email).orElse(null);
+        User user = userRepository.findCurrentByEmail(email).orElse(null);
         if (user == null) {
             return new AuthResponse(null, null, null, null, "User not found");
         }
-        if (!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getOldPassword(), user.getPassword())) {
             return new AuthResponse(null, null, null, null, "Old password is incorrect");
         }
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         userRepository.save(user);
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
-        return new AuthResponse(token, user.getEmail(), user.getName(), user.getRole().name(), "Password changed successfully");
+        // Sign out every other session before handing out fresh tokens
+        revokeAllSessions(user);
+        return issueTokens(user, refreshTokenService.issue(user), "Password changed successfully");
     }
 
     public AuthResponse login(AuthRequest request) {
-        User user = userRepository.findByEmail(request.getEmail())
+        User user = userRepository.findCurrentByEmail(request.getEmail())
                 .orElse(null);
 
-        if (user == null || !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             return new AuthResponse(null, null, null, null, "Invalid email or password");
         }
 
+        // Work factor changed since this hash was made: upgrade it while we have the password
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            try {
+                user.setPassword(passwordHashingService.encode(request.getPassword()));
+                userRepository.save(user);
+            } catch (ServiceBusyException e) {
+                logger.debug("Skipped password rehash for {}; pool busy", user.getEmail());
+            }
+        }
+
         if (!user.getRole().name().equalsIgnoreCase(request.getRole())) {
             return new AuthResponse(null, null, null, null, "Role mismatch");
         }
 
+        return issueTokens(user, refreshTokenService.issue(user), "Login successful");
+    }
+
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token
+     */
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        return issueTokens(rotation.user(), rotation.refreshToken(), "Token refreshed");
+    }
+
+    /**
+     * End the session: revoke the refresh token family and, if given, the access token
+     */
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenService.revoke(refreshToken);
+        if (accessToken != null) {
+            try {
+                tokenRevocationService.revokeToken(jwtUtil.verifyToken(accessToken));
+            } catch (JwtException | IllegalArgumentException e) {
+                // Already invalid, nothing to revoke
+            }
+        }
+    }
+
+    /**
+     * Invalidate every access and refresh token of the user (role change, delete, password change)
+     */
+    public void revokeAllSessions(User user) {
+        refreshTokenService.revokeAllForUser(user);
+        tokenRevocationService.revokeAllForSubject(user.getEmail());
+    }
+
+    private AuthResponse issueTokens(User user, String refreshToken, String message) {
         String token = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
-        return new AuthResponse(token, user.getEmail(), user.getName(), user.getRole().name(), "Login successful");
+        AuthResponse response = new AuthResponse(token, user.getEmail(), user.getName(), user.getRole().name(), message);
+        response.setRefreshToken(refreshToken);
+        response.setExpiresIn(jwtUtil.getExpirationMs() / 1000);
+        return response;
     }
 }
 
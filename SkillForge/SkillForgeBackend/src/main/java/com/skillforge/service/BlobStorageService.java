@@ -0,0 +1,245 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.StoredBlob;
+import com.skillforge.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for uploaded files. Uploads are hashed while they are
+ * written to a temp file; if a blob with the same SHA-256 already exists its
+ * reference count goes up and the temp file is dropped, otherwise the temp file
+ * becomes the new blob. Callers keep the returned storage path as their file_path
+ * and call {@link #release(String)} when the row that uses it is deleted.
+ *
+ * Each blob file name carries a random suffix, so a blob recreated right after
+ * its last reference went away never shares a file with the one being deleted.
+ * Blobs are sharded two levels deep by hash ({@code ab/cd/abcd...}), which keeps
+ * every directory small; {@code tmp/} and {@code sessions/} hold work in progress.
+ */
+@Service
+public class BlobStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStorageService.class);
+
+    /** sha256, random suffix, optional extension */
+    public static final Pattern BLOB_FILE_NAME = Pattern.compile("([0-9a-f]{64})-[0-9a-f]{8}(\\.[a-z0-9]{1,10})?");
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.storage.blob-dir:uploads/blobs}")
+    private String blobDir;
+
+    public record StoredFile(String storagePath, String sha256, long size, boolean deduplicated) {
+    }
+
+    /**
+     * Stream {@code in} into the store and take one reference to the result
+     *
+     * @param extension file extension including the dot (e.g. ".pdf"), or empty
+     */
+    public StoredFile store(InputStream in, String extension) throws IOException {
+        Path tmpDir = Paths.get(blobDir, "tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream hashing = new DigestInputStream(in, digest)) {
+                Files.copy(hashing, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return register(tmp, HexFormat.of().formatHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Take over a file already written under the blob directory (e.g. an assembled
+     * chunked upload): it is hashed in place and renamed into the store, or deleted
+     * if the same content is already stored. The file is never copied.
+     */
+    public StoredFile adopt(Path file, String extension) throws IOException {
+        try {
+            // Fresh mtime: the orphan reconciler leaves recently written files alone
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            MessageDigest digest = sha256();
+            try (InputStream hashing = new DigestInputStream(Files.newInputStream(file), digest)) {
+                hashing.transferTo(OutputStream.nullOutputStream());
+            }
+            return register(file, HexFormat.of().formatHex(digest.digest()), extension);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public Path getBlobDir() {
+        return Paths.get(blobDir);
+    }
+
+    /**
+     * Where a blob file with this name lives: {@code <blob-dir>/ab/cd/<name>} for a name
+     * starting with hash {@code abcd...}
+     */
+    public Path shardedPath(String fileName) {
+        return Paths.get(blobDir).resolve(fileName.substring(0, 2)).resolve(fileName.substring(2, 4)).resolve(fileName);
+    }
+
+    private StoredFile register(Path file, String sha256, String extension) throws IOException {
+        long size = Files.size(file);
+        // Own transaction: the blob row is locked only briefly, not for the caller's whole upload
+        TransactionTemplate tx = transaction(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return tx.execute(status -> addReference(sha256, size, file, safeExtension(extension)));
+        } catch (DataIntegrityViolationException e) {
+            // Another upload of the same bytes inserted the blob first; take a reference to it
+            return tx.execute(status -> addReference(sha256, size, file, safeExtension(extension)));
+        }
+    }
+
+    private StoredFile addReference(String sha256, long size, Path tmp, String extension) {
+        StoredBlob existing = storedBlobRepository.findBySha256ForUpdate(sha256).orElse(null);
+        if (existing != null && Files.exists(Paths.get(existing.getStoragePath()))) {
+            existing.setRefCount(existing.getRefCount() + 1);
+            storedBlobRepository.save(existing);
+            logger.info("Upload deduplicated against blob {} ({} references)", sha256, existing.getRefCount());
+            return new StoredFile(existing.getStoragePath(), sha256, size, true);
+        }
+
+        Path target = shardedPath(sha256 + "-" + UUID.randomUUID().toString().substring(0, 8) + extension);
+
+        // A row whose file went missing is reused; its old references release as non-blob paths
+        StoredBlob blob = existing != null ? existing : new StoredBlob();
+        blob.setSha256(sha256);
+        blob.setSizeBytes(size);
+        blob.setStoragePath(target.toString());
+        blob.setRefCount(1);
+        // Insert before moving, so a lost race on the unique hash leaves the temp file for the retry
+        storedBlobRepository.saveAndFlush(blob);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not store blob " + sha256, e);
+        }
+        return new StoredFile(target.toString(), sha256, size, false);
+    }
+
+    /**
+     * Drop one reference to the blob at {@code storagePath}, deleting the file
+     * after commit when it was the last one
+     *
+     * @return false if the path is not a blob (a file uploaded before the store existed)
+     */
+    public boolean release(String storagePath) {
+        // Joins the caller's transaction, so the reference goes away together with the row using it
+        return Boolean.TRUE.equals(transaction(TransactionDefinition.PROPAGATION_REQUIRED).execute(status -> {
+            StoredBlob blob = storedBlobRepository.findByStoragePathForUpdate(storagePath).orElse(null);
+            if (blob == null) {
+                return false;
+            }
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                storedBlobRepository.save(blob);
+                return true;
+            }
+            storedBlobRepository.delete(blob);
+            afterCommit(() -> {
+                try {
+                    Files.deleteIfExists(Paths.get(storagePath));
+                    logger.info("Deleted blob {} (last reference released)", blob.getSha256());
+                } catch (IOException e) {
+                    logger.error("Error deleting blob file {}: {}", storagePath, e.getMessage());
+                }
+            });
+            return true;
+        }));
+    }
+
+    /**
+     * Space used on disk versus what the same uploads would take without deduplication
+     */
+    public Map<String, Object> getStorageReport() {
+        Object[] row = storedBlobRepository.summarize();
+        if (row.length == 1 && row[0] instanceof Object[] nested) {
+            row = nested;
+        }
+        long blobs = ((Number) row[0]).longValue();
+        long storedBytes = ((Number) row[1]).longValue();
+        long references = ((Number) row[2]).longValue();
+        long referencedBytes = ((Number) row[3]).longValue();
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("blobs", blobs);
+        report.put("references", references);
+        report.put("storedBytes", storedBytes);
+        report.put("logicalBytes", referencedBytes);
+        report.put("bytesSaved", referencedBytes - storedBytes);
+        report.put("dedupRatio", storedBytes == 0 ? 1.0 : (double) referencedBytes / storedBytes);
+        return report;
+    }
+
+    private TransactionTemplate transaction(int propagation) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(propagation);
+        return template;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String safeExtension(String extension) {
+        if (extension == null || !extension.matches("\\.[A-Za-z0-9]{1,10}")) {
+            return "";
+        }
+        return extension.toLowerCase();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.skillforge.service;
 import com.skillforge.entity.Course;
 import com.skillforge.entity.CourseResource;
 import com.skillforge.entity.Enrollment;
+import com.skillforge.entity.StorageUsage;
 import com.skillforge.entity.User;
 import com.skillforge.exception.ForbiddenAccessException;
 import com.skillforge.exception.InvalidRequestException;
@@ -14,18 +15,23 @@ import com.skillforge.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 public class CourseResourceService {
@@ -46,18 +52,22 @@ public class CourseResourceService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
-    @Value("${app.resources.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private AppMetrics appMetrics;
 
-    @Transactional
-    public CourseResource uploadResource(Long courseId, String title, MultipartFile file, String uploaderEmail) throws IOException {
-        logger.info("Uploading resource for course ID: {}, uploader: {}", courseId, uploaderEmail);
+    @Autowired
+    private BlobStorageService blobStorageService;
 
-        // Validate input parameters
-        if (title == null || title.trim().isEmpty()) {
-            throw new InvalidRequestException("Resource title is required");
-        }
+    @Autowired
+    private StorageQuotaService storageQuotaService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public CourseResource uploadResource(Long courseId, String title, MultipartFile file, String uploaderEmail) throws IOException {
         // Validate file
         if (file == null || file.isEmpty()) {
             throw new InvalidRequestException("File is required");
@@ -74,8 +84,30 @@ public class CourseResourceService {
             throw new InvalidRequestException("Only PDF files are allowed");
         }
 
+        return uploadResource(courseId, title, file.getInputStream(), file.getSize(), uploaderEmail);
+    }
+
+    /**
+     * Upload a PDF from a raw stream (e.g. the request body), writing it to storage in
+     * one pass. Checks that need no file bytes run first; the size limit and the PDF
+     * signature are checked while streaming, so bad uploads stop early.
+     *
+     * Not transactional as a whole: the body is read with no connection held, and only
+     * the row insert and quota charge run in a (short) transaction afterwards.
+     *
+     * @param declaredSize Content-Length if known, otherwise -1
+     */
+    public CourseResource uploadResource(Long courseId, String title, InputStream content, long declaredSize,
+                                         String uploaderEmail) throws IOException {
+        logger.info("Uploading resource for course ID: {}, uploader: {}", courseId, uploaderEmail);
+
+        // Validate input parameters
+        if (title == null || title.trim().isEmpty()) {
+            throw new InvalidRequestException("Resource title is required");
+        }
+
         // Validate file size
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (declaredSize > MAX_FILE_SIZE) {
             throw new InvalidRequestException("File size must not exceed 10MB");
         }
 
@@ -97,31 +129,38 @@ public class CourseResourceService {
             }
         }
 
-        // Create directory for course resources
-        Path courseDirPath = Paths.get(uploadDir, courseId.toString());
-        if (!Files.exists(courseDirPath)) {
-            Files.createDirectories(courseDirPath);
-            logger.info("Created directory: {}", courseDirPath);
-        }
+        storageQuotaService.checkQuota(courseId, uploader.getId(), declaredSize);
 
-        // Generate unique filename
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String fileName = UUID.randomUUID().toString() + fileExtension;
-        Path filePath = courseDirPath.resolve(fileName);
-
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        logger.info("File saved to: {}", filePath);
+        // Save file to the blob store; the same PDF uploaded to several courses is kept once
+        BlobStorageService.StoredFile stored = blobStorageService.store(
+                new ValidatingUploadStream(content, UploadType.PDF, MAX_FILE_SIZE, "10MB"), ".pdf");
+        logger.info("File saved to: {}{}", stored.storagePath(), stored.deduplicated() ? " (deduplicated)" : "");
 
         // Create resource entity
         CourseResource resource = new CourseResource();
         resource.setCourse(course);
         resource.setTitle(title);
-        resource.setFilePath(filePath.toString());
+        resource.setFilePath(stored.storagePath());
         resource.setUploadedBy(uploader);
-        resource.setFileSize(file.getSize());
+        resource.setFileSize(stored.size());
+        resource.setContentHash(stored.sha256());
+        resource.setTextStatus(CourseResource.TextStatus.PENDING);
 
-        CourseResource savedResource = courseResourceRepository.save(resource);
+        CourseResource savedResource;
+        try {
+            savedResource = transactionTemplate.execute(status -> {
+                storageQuotaService.charge(StorageUsage.Kind.RESOURCE, courseId, uploader.getId(), stored.size());
+                CourseResource saved = courseResourceRepository.save(resource);
+                // Text extraction for search starts once this commits
+                eventPublisher.publishEvent(new CourseResourceUploadedEvent(saved.getId()));
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // The blob reference was committed by store(); nothing uses it now
+            blobStorageService.release(stored.storagePath());
+            throw e;
+        }
+        appMetrics.recordUpload("resource", stored.size());
         logger.info("Resource saved to database with ID: {}", savedResource.getId());
 
         return savedResource;
@@ -160,6 +199,32 @@ public class CourseResourceService {
                 .orElseThrow(() -> new ResourceNotFoundException("Resource not found with ID: " + resourceId));
     }
 
+    /**
+     * Content hash of the resource's file; computed and stored once for resources
+     * uploaded before hashes were recorded
+     */
+    public String getContentHash(CourseResource resource) throws IOException {
+        if (resource.getContentHash() != null) {
+            return resource.getContentHash();
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(Paths.get(resource.getFilePath())), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        courseResourceRepository.updateContentHash(resource.getId(), hash);
+        resource.setContentHash(hash);
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     @Transactional
     public void deleteResource(Long resourceId, String userEmail) {
         logger.info("Deleting resource ID: {} by user: {}", resourceId, userEmail);
@@ -184,51 +249,27 @@ public class CourseResourceService {
 
         logger.info("User {} has permission to delete resource {}", userEmail, resourceId);
 
-        // Delete physical file
-        try {
-            Path filePath = Paths.get(resource.getFilePath());
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                logger.info("Physical file deleted: {}", filePath);
+        // Release the blob; files from before the blob store are deleted directly
+        if (!blobStorageService.release(resource.getFilePath())) {
+            try {
+                Path filePath = Paths.get(resource.getFilePath());
+                if (Files.exists(filePath)) {
+                    Files.delete(filePath);
+                    logger.info("Physical file deleted: {}", filePath);
+                }
+            } catch (IOException e) {
+                logger.error("Error deleting physical file: {}", e.getMessage());
             }
-        } catch (IOException e) {
-            logger.error("Error deleting physical file: {}", e.getMessage());
         }
 
+        storageQuotaService.credit(StorageUsage.Kind.RESOURCE, resource.getCourse().getId(),
+                resource.getUploadedBy().getId(), resource.getFileSize());
+
         // Delete from database
         courseResourceRepository.delete(resource);
         logger.info("Resource deleted from database");
     }
 
-    public boolean canAccessResource(Long resourceId, String userEmail) {
-        CourseResource resource = getResourceById(resourceId);
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        // Admin can access everything
-        if (user.getRole().equals(User.Role.ADMIN)) {
-            logger.info("Admin {} granted access to resource {}", userEmail, resourceId);
-            return true;
-        }
-
-        // OWNERSHIP CHECK: Instructor can access resources of their courses
-        if (user.getRole().equals(User.Role.INSTRUCTOR)) {
-            boolean hasAccess = resource.getCourse().getInstructor().getId().equals(user.getId());
-            logger.info("Instructor {} {} access to resource {}", userEmail, hasAccess ? "granted" : "denied", resourceId);
-            return hasAccess;
-        }
-
-        // ENROLLMENT CHECK: Student can access if enrolled
-        if (user.getRole().equals(User.Role.STUDENT)) {
-            boolean hasAccess = enrollmentRepository.findByStudentAndCourse(user, resource.getCourse()).isPresent();
-            logger.info("Student {} {} access to resource {}", userEmail, hasAccess ? "granted" : "denied", resourceId);
-            return hasAccess;
-        }
-
-        logger.warn("User {} with role {} denied access to resource {}", userEmail, user.getRole(), resourceId);
-        return false;
-    }
-
     // ADMIN: Get all resources across all courses
     public List<CourseResource> getAllResources() {
         logger.info("Fetching all resources for admin");
@@ -0,0 +1,7 @@
+package com.skillforge.service;
+
+/**
+ * Published when a course resource PDF is stored; listeners run after the upload commits
+ */
+public record CourseResourceUploadedEvent(Long resourceId) {
+}
@@ -5,8 +5,11 @@ import com.skillforge.entity.Course;
 import com.skillforge.entity.User;
 import com.skillforge.repository.CourseRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.CourseAccessChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +23,15 @@ public class CourseService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private ReferenceCacheService referenceCacheService;
+
     public Course createCourse(CourseRequest request, String instructorEmail) {
         User instructor = userRepository.findByEmail(instructorEmail)
                 .orElseThrow(() -> new RuntimeException("Instructor not found"));
@@ -31,10 +43,12 @@ public class CourseService {
         return courseRepository.save(course);
     }
 
+    @Transactional(readOnly = true)
     public List<Course> getAllCourses() {
         return courseRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Course> getCoursesByInstructor(String instructorEmail) {
         User instructor = userRepository.findByEmail(instructorEmail)
                 .orElseThrow(() -> new RuntimeException("Instructor not found"));
@@ -61,6 +75,7 @@ public class CourseService {
         return courseRepository.save(course);
     }
 
+    @Transactional
     public void deleteCourse(Long id, String instructorEmail) {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
@@ -72,7 +87,25 @@ public class CourseService {
             throw new RuntimeException("Unauthorized to delete this course");
         }
 
+        delete(course);
+    }
+
+    /**
+     * Admin delete of any course
+     */
+    @Transactional
+    public void deleteCourseAsAdmin(Long id) {
+        Course course = courseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+        delete(course);
+    }
+
+    private void delete(Course course) {
+        // Resources, videos and submissions go by cascade; give their storage back in the same transaction
+        storageQuotaService.releaseCourse(course.getId());
         courseRepository.delete(course);
+        referenceCacheService.evictQuestions();
+        eventPublisher.publishEvent(CourseAccessChangedEvent.forCourse(course.getId()));
     }
 }
 
@@ -0,0 +1,172 @@
+package com.skillforge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Files on disk bounded by total size, evicting the least recently used. The
+ * recency order is kept in memory; hits also touch the file's mtime, so the order
+ * is rebuilt from mtimes after a restart.
+ *
+ * Entries are written to a temporary name and moved into place, so readers never
+ * see a partial file. Keys become file names and must be safe as such.
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final long maxBytes;
+
+    /** key -> size in bytes, least recently used first */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long evictions;
+
+    public DiskLruCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Index what is already on disk, oldest first, and trim it to the size limit
+     */
+    public void load() throws IOException {
+        Files.createDirectories(dir);
+        List<Map.Entry<Path, BasicFileAttributes>> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir, 2)) {
+            for (Path file : (Iterable<Path>) walk::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                if (file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                    // Left by a write that never finished
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                files.add(Map.entry(file, attributes));
+            }
+        }
+        files.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        synchronized (this) {
+            for (Map.Entry<Path, BasicFileAttributes> file : files) {
+                entries.put(file.getKey().getFileName().toString(), file.getValue().size());
+                totalBytes += file.getValue().size();
+            }
+        }
+        evict();
+        logger.info("Disk cache {} holds {} file(s), {} bytes", dir, entries.size(), totalBytes);
+    }
+
+    /**
+     * @return the cached file, or null on a miss
+     */
+    public Path get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = pathFor(key);
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return file;
+        } catch (NoSuchFileException e) {
+            // Removed behind our back
+            remove(key);
+            return null;
+        } catch (IOException e) {
+            return file;
+        }
+    }
+
+    /**
+     * Store {@code data} under {@code key}, evicting older entries to make room
+     */
+    public Path put(String key, byte[] data) {
+        Path file = pathFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(key + "." + UUID.randomUUID() + TMP_SUFFIX);
+            Files.write(tmp, data);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            Long previous = entries.put(key, (long) data.length);
+            totalBytes += data.length - (previous != null ? previous : 0);
+        }
+        evict();
+        return file;
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private void evict() {
+        List<String> victims = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            // Never the newest entry, which was just written for a caller
+            while (totalBytes > maxBytes && entries.size() - victims.size() > 1 && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                victims.add(entry.getKey());
+                totalBytes -= entry.getValue();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        for (String key : victims) {
+            try {
+                Files.deleteIfExists(pathFor(key));
+            } catch (IOException e) {
+                logger.warn("Could not evict {} from {}: {}", key, dir, e.getMessage());
+            }
+        }
+    }
+
+    private Path pathFor(String key) {
+        // Two-character subdirectories keep directory listings short
+        return dir.resolve(key.substring(0, Math.min(2, key.length()))).resolve(key);
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -6,7 +6,9 @@ import com.skillforge.entity.User;
 import com.skillforge.repository.CourseRepository;
 import com.skillforge.repository.EnrollmentRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.CourseAccessChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -23,6 +25,9 @@ public class EnrollmentService {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public Enrollment enrollStudent(Long courseId, String studentEmail) {
         User student = userRepository.findByEmail(studentEmail)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
@@ -38,7 +43,9 @@ public class EnrollmentService {
         enrollment.setStudent(student);
         enrollment.setCourse(course);
         enrollment.setProgressPercentage(0.0);
-        return enrollmentRepository.save(enrollment);
+        Enrollment saved = enrollmentRepository.save(enrollment);
+        eventPublisher.publishEvent(CourseAccessChangedEvent.forEnrollment(course.getId(), student.getId()));
+        return saved;
     }
 
     public void unenrollStudent(Long courseId, String studentEmail) {
@@ -52,6 +59,7 @@ public class EnrollmentService {
                 .orElseThrow(() -> new RuntimeException("Not enrolled in this course"));
 
         enrollmentRepository.delete(enrollment);
+        eventPublisher.publishEvent(CourseAccessChangedEvent.forEnrollment(course.getId(), student.getId()));
     }
 
     public List<Enrollment> getStudentEnrollments(String studentEmail) {
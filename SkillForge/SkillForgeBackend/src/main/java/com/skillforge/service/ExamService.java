@@ -2,6 +2,7 @@ package com.skillforge.service;
 
 import com.skillforge.entity.*;
 import com.skillforge.repository.*;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,77 +32,88 @@ public class ExamService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
+    @Autowired
+    private AppMetrics appMetrics;
+
     /**
      * Auto-evaluate exam answers and calculate score
      */
     @Transactional
     public ExamAttempt evaluateAndSaveAttempt(Exam exam, User student, Map<Long, String> answers, Integer timeTaken) {
-        // Get all questions for the exam
-        List<Question> questions = questionRepository.findByExam(exam);
+        Timer.Sample gradeSample = appMetrics.startTimer();
+        String outcome = "error";
+        try {
+            // Get all questions for the exam
+            List<Question> questions = questionRepository.findByExam(exam);
         
-        if (questions.isEmpty()) {
-            throw new RuntimeException("No questions found for this exam");
-        }
+            if (questions.isEmpty()) {
+                throw new RuntimeException("No questions found for this exam");
+            }
 
-        // Create exam attempt
-        ExamAttempt attempt = new ExamAttempt();
-        attempt.setExam(exam);
-        attempt.setStudent(student);
-        attempt.setAttemptedAt(LocalDateTime.now());
-        attempt.setTimeTakenMinutes(timeTaken);
-        attempt.setTotalQuestions(questions.size());
-
-        int correctCount = 0;
-        int wrongCount = 0;
-        double totalMarks = 0.0;
-        double obtainedMarks = 0.0;
-
-        // Save attempt first to get ID for exam answers
-        ExamAttempt savedAttempt = examAttemptRepository.save(attempt);
-
-        // Evaluate each answer
-        for (Question question : questions) {
-            totalMarks += question.getMarks();
+            // Create exam attempt
+            ExamAttempt attempt = new ExamAttempt();
+            attempt.setExam(exam);
+            attempt.setStudent(student);
+            attempt.setAttemptedAt(LocalDateTime.now());
+            attempt.setTimeTakenMinutes(timeTaken);
+            attempt.setTotalQuestions(questions.size());
+
+            int correctCount = 0;
+            int wrongCount = 0;
+            double totalMarks = 0.0;
+            double obtainedMarks = 0.0;
+
+            // Save attempt first to get ID for exam answers
+            ExamAttempt savedAttempt = examAttemptRepository.save(attempt);
+
+            // Evaluate each answer
+            for (Question question : questions) {
+                totalMarks += question.getMarks();
             
-            ExamAnswer examAnswer = new ExamAnswer();
-            examAnswer.setExamAttempt(savedAttempt);
-            examAnswer.setQuestion(question);
+                ExamAnswer examAnswer = new ExamAnswer();
+                examAnswer.setExamAttempt(savedAttempt);
+                examAnswer.setQuestion(question);
             
-            String selectedOption = answers.get(question.getId());
-            examAnswer.setSelectedOption(selectedOption);
-
-            // Check if answer is correct
-            boolean isCorrect = selectedOption != null && 
-                               selectedOption.equalsIgnoreCase(question.getCorrectOption());
-            examAnswer.setIsCorrect(isCorrect);
-
-            // Calculate marks
-            if (isCorrect) {
-                correctCount++;
-                examAnswer.setMarksObtained(question.getMarks());
-                obtainedMarks += question.getMarks();
-            } else {
-                wrongCount++;
-                // Apply negative marking if enabled
-                if (exam.getNegativeMarking() && selectedOption != null) {
-                    double negativeMark = exam.getNegativeMarkValue() * question.getMarks();
-                    examAnswer.setMarksObtained(-negativeMark);
-                    obtainedMarks -= negativeMark;
+                String selectedOption = answers.get(question.getId());
+                examAnswer.setSelectedOption(selectedOption);
+
+                // Check if answer is correct
+                boolean isCorrect = selectedOption != null && 
+                                   selectedOption.equalsIgnoreCase(question.getCorrectOption());
+                examAnswer.setIsCorrect(isCorrect);
+
+                // Calculate marks
+                if (isCorrect) {
+                    correctCount++;
+                    examAnswer.setMarksObtained(question.getMarks());
+                    obtainedMarks += question.getMarks();
                 } else {
-                    examAnswer.setMarksObtained(0.0);
+                    wrongCount++;
+                    // Apply negative marking if enabled
+                    if (exam.getNegativeMarking() && selectedOption != null) {
+                        double negativeMark = exam.getNegativeMarkValue() * question.getMarks();
+                        examAnswer.setMarksObtained(-negativeMark);
+                        obtainedMarks -= negativeMark;
+                    } else {
+                        examAnswer.setMarksObtained(0.0);
+                    }
                 }
+
+                examAnswerRepository.save(examAnswer);
             }
 
-            examAnswerRepository.save(examAnswer);
+            // Update attempt with results
+            savedAttempt.setCorrectAnswers(correctCount);
+            savedAttempt.setWrongAnswers(wrongCount);
+            savedAttempt.setScore(obtainedMarks);
+            savedAttempt.setPercentage((obtainedMarks / totalMarks) * 100.0);
+
+            ExamAttempt gradedAttempt = examAttemptRepository.save(savedAttempt);
+            outcome = "success";
+            return gradedAttempt;
+        } finally {
+            appMetrics.recordGrading(gradeSample, outcome);
         }
-
-        // Update attempt with results
-        savedAttempt.setCorrectAnswers(correctCount);
-        savedAttempt.setWrongAnswers(wrongCount);
-        savedAttempt.setScore(obtainedMarks);
-        savedAttempt.setPercentage((obtainedMarks / totalMarks) * 100.0);
-
-        return examAttemptRepository.save(savedAttempt);
     }
 
     /**
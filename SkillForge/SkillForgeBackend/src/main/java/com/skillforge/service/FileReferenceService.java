@@ -0,0 +1,66 @@
+package com.skillforge.service;
+
+import com.skillforge.repository.AssignmentSubmissionRepository;
+import com.skillforge.repository.CourseResourceRepository;
+import com.skillforge.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The rows that point at stored files: course resources, assignment submissions
+ * and uploaded videos, all through their file_path column
+ */
+@Service
+public class FileReferenceService {
+
+    @Autowired
+    private CourseResourceRepository courseResourceRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    /**
+     * Number of rows whose file_path is exactly {@code filePath}
+     */
+    public long countReferences(String filePath) {
+        return courseResourceRepository.countByFilePath(filePath)
+                + submissionRepository.countByFilePath(filePath)
+                + videoRepository.countByFilePath(filePath);
+    }
+
+    /**
+     * Point every row using {@code oldPath} at {@code newPath}; joins the caller's transaction
+     *
+     * @return number of rows updated
+     */
+    public int repointReferences(String oldPath, String newPath) {
+        return courseResourceRepository.updateFilePath(oldPath, newPath)
+                + submissionRepository.updateFilePath(oldPath, newPath)
+                + videoRepository.updateFilePath(oldPath, newPath);
+    }
+
+    /**
+     * Up to {@code limit} distinct file paths outside the blob store (uploads from before it
+     * existed), in path order after {@code after}
+     */
+    public List<String> findLegacyFilePaths(String after, int limit) {
+        String blobPrefix = blobStorageService.getBlobDir().toString() + File.separator;
+        PageRequest page = PageRequest.of(0, limit);
+        TreeSet<String> paths = new TreeSet<>();
+        paths.addAll(courseResourceRepository.findLegacyFilePaths(blobPrefix, after, page));
+        paths.addAll(submissionRepository.findLegacyFilePaths(blobPrefix, after, page));
+        paths.addAll(videoRepository.findLegacyFilePaths(blobPrefix, after, page));
+        return paths.stream().limit(limit).toList();
+    }
+}
@@ -0,0 +1,253 @@
+package com.skillforge.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Serves files from disk with HTTP caching and byte ranges: strong ETags,
+ * conditional GETs (304), single {@code Range} requests with {@code If-Range},
+ * and 416 for ranges past the end. Malformed ranges and multi-range requests get
+ * the whole file, which RFC 9110 allows.
+ *
+ * Bodies go out through Tomcat's sendfile when the connector supports it, so
+ * the bytes never enter the JVM; otherwise through {@link FileChannel#transferTo}.
+ */
+@Service
+public class FileStreamingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStreamingService.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private AppMetrics appMetrics;
+
+    /** Below this size a plain write is cheaper than handing the file to the poller */
+    @Value("${app.storage.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final Pattern DIGITS = Pattern.compile("[0-9]+");
+
+    /**
+     * Write {@code file} as the response to {@code request}
+     *
+     * @param entityTag   opaque validator for the file's bytes (e.g. its content hash), sent as a strong ETag
+     * @param disposition full Content-Disposition value, or null
+     * @param metricKind  tag for the downloaded-bytes counter
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file,
+                      String entityTag, String contentType, String disposition, String metricKind) throws IOException {
+        serve(request, response, file, entityTag, contentType, disposition, metricKind, 0);
+    }
+
+    /**
+     * As above, but an open-ended range ("bytes=n-") is answered with at most
+     * {@code maxOpenRangeBytes}, so a media player that seeks or stops early is
+     * not sent the rest of the file. Zero means no cap.
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file, String entityTag,
+                      String contentType, String disposition, String metricKind, long maxOpenRangeBytes) throws IOException {
+        serve(request, response, file, entityTag, contentType, disposition, metricKind, maxOpenRangeBytes, true);
+    }
+
+    /**
+     * As above; with {@code sendfile} false the body is always written before this
+     * returns. Callers that hold a resource for the length of the transfer (e.g. a
+     * stream slot) need that, as Tomcat sends a sendfile body after the servlet
+     * has returned.
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, Path file, String entityTag,
+                      String contentType, String disposition, String metricKind, long maxOpenRangeBytes,
+                      boolean sendfile) throws IOException {
+        long length;
+        long lastModified;
+        try {
+            length = Files.size(file);
+            lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        } catch (NoSuchFileException e) {
+            logger.error("File not found: {}", file);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = "\"" + entityTag + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Access is per user, so only the browser may cache, and it must revalidate
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(contentType);
+        if (disposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        }
+
+        ByteRange range = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeHeader.startsWith("bytes=") && rangeHeader.indexOf(',') < 0
+                && ifRangeMatches(request, etag, lastModified)) {
+            range = parseRange(rangeHeader.substring("bytes=".length()).trim(), length, maxOpenRangeBytes);
+            if (range == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        if (range == null) {
+            range = new ByteRange(0, length - 1);
+            response.setStatus(HttpServletResponse.SC_OK);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + length);
+        }
+        response.setContentLengthLong(range.length());
+
+        if ("HEAD".equals(request.getMethod()) || range.length() <= 0) {
+            return;
+        }
+
+        if (sendfile && range.length() >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+        } else {
+            transfer(file, range, response);
+        }
+        appMetrics.recordDownload(metricKind, range.length());
+    }
+
+    private void transfer(Path file, ByteRange range, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * A Range is only honoured if the client's copy is still current; If-Range
+     * needs a strong ETag match or an exact Last-Modified match
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses "a-b", "a-" or "-n". Returns null for a malformed or inverted range,
+     * which is ignored (the whole file is sent), and {@link #UNSATISFIABLE} for a
+     * valid range that misses the file, which is answered with 416 (RFC 9110 14.2).
+     */
+    private ByteRange parseRange(String spec, long length, long maxOpenRangeBytes) {
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        if ((!first.isEmpty() && !DIGITS.matcher(first).matches()) || (!last.isEmpty() && !DIGITS.matcher(last).matches())
+                || (first.isEmpty() && last.isEmpty())) {
+            return null;
+        }
+        try {
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix == 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = length - 1;
+            if (!last.isEmpty()) {
+                long requestedEnd = Long.parseLong(last);
+                if (requestedEnd < start) {
+                    return null;
+                }
+                end = Math.min(requestedEnd, end);
+            } else if (maxOpenRangeBytes > 0) {
+                end = Math.min(start + maxOpenRangeBytes - 1, end);
+            }
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            // Too many digits for a long
+            return null;
+        }
+    }
+}
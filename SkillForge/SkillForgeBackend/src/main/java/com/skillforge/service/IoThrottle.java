@@ -0,0 +1,35 @@
+package com.skillforge.service;
+
+/**
+ * Paces background storage work to a fixed number of units (files or bytes) per
+ * second, so maintenance jobs do not compete with downloads for disk bandwidth.
+ * One instance per job run; not thread safe.
+ */
+public class IoThrottle {
+
+    private final double unitsPerSecond;
+    private final long startNanos = System.nanoTime();
+    private double units;
+
+    /**
+     * @param unitsPerSecond rate limit; zero or less disables throttling
+     */
+    public IoThrottle(double unitsPerSecond) {
+        this.unitsPerSecond = unitsPerSecond;
+    }
+
+    /**
+     * Account for {@code count} units, sleeping until the rate allows them
+     */
+    public void acquire(long count) throws InterruptedException {
+        if (unitsPerSecond <= 0) {
+            return;
+        }
+        units += count;
+        long dueNanos = startNanos + (long) (units / unitsPerSecond * 1_000_000_000L);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+}
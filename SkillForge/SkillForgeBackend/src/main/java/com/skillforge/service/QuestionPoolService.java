@@ -0,0 +1,313 @@
+package com.skillforge.service;
+
+import com.skillforge.dto.AiGeneratedQuestion;
+import com.skillforge.dto.AiQuestionResponse;
+import com.skillforge.entity.PooledQuestion;
+import com.skillforge.entity.QuestionPoolTopic;
+import com.skillforge.exception.AiServiceUnavailableException;
+import com.skillforge.repository.PooledQuestionRepository;
+import com.skillforge.repository.QuestionPoolTopicRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Pool of pre-generated AI questions per (course, topic, difficulty).
+ *
+ * Every preview request records demand for its key. An off-peak scheduler tops up
+ * the pools of recently requested keys against the rate-limited AI service, and a
+ * pool that has just been drawn from is refilled in the background, but only while
+ * the rate limiter has spare tokens so interactive generation is never starved.
+ * Questions are validated and de-duplicated (by normalized-text hash) before they
+ * enter a pool, and are removed from it when handed out.
+ */
+@Service
+public class QuestionPoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionPoolService.class);
+
+    @Autowired
+    private PooledQuestionRepository pooledQuestionRepository;
+
+    @Autowired
+    private QuestionPoolTopicRepository poolTopicRepository;
+
+    @Autowired
+    private AiQuestionService aiQuestionService;
+
+    @Autowired
+    private AiRateLimiter aiRateLimiter;
+
+    @Autowired
+    private AiCircuitBreaker aiCircuitBreaker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("aiGenerationExecutor")
+    private Executor aiGenerationExecutor;
+
+    @Value("${app.ai.pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.pool.target-size:30}")
+    private int targetSize;
+
+    @Value("${app.ai.pool.batch-size:10}")
+    private int batchSize;
+
+    @Value("${app.ai.pool.topic-retention-days:120}")
+    private int topicRetentionDays;
+
+    // Tokens left untouched by background refills so instructors can still generate live
+    @Value("${app.ai.pool.refill-headroom-tokens:2}")
+    private int refillHeadroomTokens;
+
+    private final Set<Long> refillsInFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean offPeakRefillRunning = new AtomicBoolean();
+
+    /**
+     * Take questions from the pool for the key, or return null if the pool cannot
+     * cover the whole request (the caller then generates live). Either way the
+     * demand is recorded and a background refill is scheduled.
+     */
+    public List<AiGeneratedQuestion> takeFromPool(String courseName, String topic, String difficulty, int numberOfQuestions) {
+        if (!enabled || topic == null || topic.trim().isEmpty() || numberOfQuestions < 1) {
+            return null;
+        }
+
+        QuestionPoolTopic poolTopic = recordDemand(courseName, topic, difficulty);
+
+        List<PooledQuestion> taken = transactionTemplate.execute(status -> {
+            List<PooledQuestion> locked = pooledQuestionRepository.lockOldest(
+                    poolTopic.getCourseKey(), poolTopic.getTopicKey(), poolTopic.getDifficulty(),
+                    PageRequest.of(0, numberOfQuestions));
+            if (locked.size() < numberOfQuestions) {
+                return null;
+            }
+            pooledQuestionRepository.deleteAllInBatch(locked);
+            return locked;
+        });
+
+        scheduleRefill(poolTopic.getId());
+
+        if (taken == null) {
+            return null;
+        }
+        logger.info("Served {} questions for '{}' / '{}' from the pre-generated pool", taken.size(), courseName, topic);
+        return taken.stream()
+                .map(p -> new AiGeneratedQuestion(p.getQuestionText(), p.getOptionA(), p.getOptionB(),
+                        p.getOptionC(), p.getOptionD(), p.getCorrectOption()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Top up the pools of recently requested keys while the AI service is otherwise
+     * idle. The AI calls block for up to the read timeout, so the walk runs on the AI
+     * executor rather than holding the shared scheduler thread.
+     */
+    @Scheduled(cron = "${app.ai.pool.refill-cron:0 */5 1-5 * * *}")
+    public void refillDuringOffPeak() {
+        if (!enabled || !offPeakRefillRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            aiGenerationExecutor.execute(() -> {
+                try {
+                    refillRecentTopics();
+                } finally {
+                    offPeakRefillRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            offPeakRefillRunning.set(false);
+            logger.debug("AI executor full; off-peak pool refill left for the next run");
+        }
+    }
+
+    private void refillRecentTopics() {
+        List<QuestionPoolTopic> topics = poolTopicRepository.findByLastRequestedAtAfterOrderByRequestCountDesc(
+                LocalDateTime.now().minusDays(topicRetentionDays));
+        for (QuestionPoolTopic topic : topics) {
+            if (aiCircuitBreaker.isOpen() || !refillsInFlight.add(topic.getId())) {
+                continue;
+            }
+            try {
+                if (!refillTopic(topic.getId(), false)) {
+                    // Out of rate-limit tokens; the next run continues where this one stopped
+                    return;
+                }
+            } finally {
+                refillsInFlight.remove(topic.getId());
+            }
+        }
+    }
+
+    private void scheduleRefill(Long topicId) {
+        if (!refillsInFlight.add(topicId)) {
+            return;
+        }
+        try {
+            aiGenerationExecutor.execute(() -> {
+                try {
+                    refillTopic(topicId, true);
+                } finally {
+                    refillsInFlight.remove(topicId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refillsInFlight.remove(topicId);
+        }
+    }
+
+    /**
+     * Generate into the pool until it reaches the target size
+     *
+     * @param keepHeadroom leave refill-headroom-tokens in the rate limiter for live requests
+     * @return false if refilling stopped because no rate-limit token was available
+     */
+    private boolean refillTopic(Long topicId, boolean keepHeadroom) {
+        QuestionPoolTopic topic = poolTopicRepository.findById(topicId).orElse(null);
+        if (topic == null) {
+            return true;
+        }
+
+        long size = pooledQuestionRepository.countByCourseKeyAndTopicKeyAndDifficulty(
+                topic.getCourseKey(), topic.getTopicKey(), topic.getDifficulty());
+        try {
+            while (size < targetSize) {
+                if (keepHeadroom && aiRateLimiter.availableTokens() < refillHeadroomTokens + 1) {
+                    return false;
+                }
+                if (!aiRateLimiter.tryAcquire()) {
+                    return false;
+                }
+                int count = (int) Math.min(batchSize, targetSize - size);
+                AiQuestionResponse response;
+                try {
+                    response = aiQuestionService.generateQuestions(
+                            topic.getCourseName(), topic.getTopic(), topic.getDifficulty(), count);
+                } catch (AiServiceUnavailableException e) {
+                    // Rejected by the circuit breaker or bulkhead before any call was made
+                    aiRateLimiter.release();
+                    throw e;
+                }
+                int added = addToPool(topic, aiQuestionService.validateQuestions(response.getQuestions()));
+                if (added == 0) {
+                    // Only duplicates came back; try again on a later run
+                    break;
+                }
+                size += added;
+            }
+        } catch (AiServiceUnavailableException e) {
+            logger.info("Pool refill for '{}' paused: {}", topic.getTopic(), e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            logger.warn("Pool refill for '{}' failed: {}", topic.getTopic(), e.getMessage());
+            return true;
+        }
+
+        topic.setLastRefilledAt(LocalDateTime.now());
+        poolTopicRepository.save(topic);
+        logger.info("Question pool for '{}' / '{}' ({}) now holds {} questions",
+                topic.getCourseName(), topic.getTopic(), topic.getDifficulty(), size);
+        return true;
+    }
+
+    private int addToPool(QuestionPoolTopic topic, List<AiGeneratedQuestion> questions) {
+        int added = 0;
+        for (AiGeneratedQuestion question : questions) {
+            String hash = sha256(normalize(question.getQuestion()));
+            if (pooledQuestionRepository.existsByCourseKeyAndTopicKeyAndDifficultyAndTextHash(
+                    topic.getCourseKey(), topic.getTopicKey(), topic.getDifficulty(), hash)) {
+                continue;
+            }
+            PooledQuestion pooled = new PooledQuestion();
+            pooled.setCourseKey(topic.getCourseKey());
+            pooled.setTopicKey(topic.getTopicKey());
+            pooled.setDifficulty(topic.getDifficulty());
+            pooled.setQuestionText(question.getQuestion());
+            pooled.setOptionA(question.getOptionA());
+            pooled.setOptionB(question.getOptionB());
+            pooled.setOptionC(question.getOptionC());
+            pooled.setOptionD(question.getOptionD());
+            pooled.setCorrectOption(question.getCorrectOption());
+            pooled.setTextHash(hash);
+            try {
+                pooledQuestionRepository.save(pooled);
+                added++;
+            } catch (DataIntegrityViolationException e) {
+                // Same question inserted concurrently
+            }
+        }
+        return added;
+    }
+
+    private QuestionPoolTopic recordDemand(String courseName, String topic, String difficulty) {
+        String courseKey = normalize(courseName != null ? courseName : "");
+        String topicKey = normalize(topic);
+        String difficultyKey = normalizeDifficulty(difficulty);
+
+        QuestionPoolTopic poolTopic = poolTopicRepository
+                .findByCourseKeyAndTopicKeyAndDifficulty(courseKey, topicKey, difficultyKey)
+                .orElseGet(() -> {
+                    QuestionPoolTopic created = new QuestionPoolTopic();
+                    created.setCourseKey(courseKey);
+                    created.setTopicKey(topicKey);
+                    created.setDifficulty(difficultyKey);
+                    created.setCourseName(courseName);
+                    created.setTopic(topic.trim());
+                    return created;
+                });
+        poolTopic.setRequestCount(poolTopic.getRequestCount() + 1);
+        poolTopic.setLastRequestedAt(LocalDateTime.now());
+        try {
+            return poolTopicRepository.save(poolTopic);
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the key first
+            return poolTopicRepository.findByCourseKeyAndTopicKeyAndDifficulty(courseKey, topicKey, difficultyKey)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private static String normalize(String text) {
+        String normalized = text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        return normalized.length() > 255 ? normalized.substring(0, 255) : normalized;
+    }
+
+    private static String normalizeDifficulty(String difficulty) {
+        return difficulty == null || difficulty.trim().isEmpty() ? "medium" : difficulty.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.skillforge.service;
+
+/**
+ * Published when questions are appended to an exam with a JDBC batch insert;
+ * listeners run after the insert commits
+ */
+public record QuestionsBatchInsertedEvent(Long examId) {
+}
@@ -0,0 +1,129 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.Question;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Upkeep of the Hibernate second-level cache that holds Course, Exam, Question
+ * and User (regions sized in application.conf).
+ *
+ * Writes through JPA keep the cache in step on their own. This covers the ones
+ * Hibernate cannot see: the JDBC batch insert of generated questions, and
+ * questions removed by the database when their exam or course is deleted.
+ * Each node has its own cache, so another node can serve an entry until its
+ * region's expiry.
+ */
+@Service
+public class ReferenceCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceCacheService.class);
+
+    public static final String QUESTIONS_BY_EXAM_REGION = "question-by-exam";
+    public static final String USERS_BY_EMAIL_REGION = "user-by-email";
+
+    private static final List<String> ENTITY_REGIONS = List.of("course", "exam", "question", "user");
+    private static final List<String> QUERY_REGIONS = List.of(QUESTIONS_BY_EXAM_REGION, USERS_BY_EMAIL_REGION);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Drop cached exam question lists once a batch insert has committed; Hibernate
+     * does not see JDBC writes, so the lists would otherwise miss the new rows
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionsBatchInserted(QuestionsBatchInsertedEvent event) {
+        cache().evictQueryRegion(QUESTIONS_BY_EXAM_REGION);
+    }
+
+    /**
+     * Drop cached questions and question lists once the current transaction commits;
+     * for exam and course deletes, whose questions the database removes
+     */
+    public void evictQuestions() {
+        afterCommit(() -> {
+            cache().evictEntityData(Question.class);
+            cache().evictQueryRegion(QUESTIONS_BY_EXAM_REGION);
+        });
+    }
+
+    /**
+     * Empty every region on this node, e.g. after editing the tables by hand
+     */
+    public void evictAll() {
+        cache().evictAllRegions();
+        logger.info("Evicted all second-level cache regions");
+    }
+
+    /**
+     * Hits, misses and puts per region since startup
+     */
+    public Map<String, Object> getReport() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : ENTITY_REGIONS) {
+            regions.put(region, describe(() -> statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS) {
+            regions.put(region, describe(() -> statistics.getQueryRegionStatistics(region)));
+        }
+        report.put("regions", regions);
+        return report;
+    }
+
+    private static Map<String, Object> describe(Supplier<CacheRegionStatistics> statistics) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        CacheRegionStatistics region;
+        try {
+            region = statistics.get();
+        } catch (IllegalArgumentException e) {
+            // Query regions only exist once a cached query has run
+            region = null;
+        }
+        if (region == null) {
+            return map;
+        }
+        long hits = region.getHitCount();
+        long misses = region.getMissCount();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("puts", region.getPutCount());
+        map.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : null);
+        return map;
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
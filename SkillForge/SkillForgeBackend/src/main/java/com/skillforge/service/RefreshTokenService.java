@@ -0,0 +1,131 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.RefreshToken;
+import com.skillforge.entity.User;
+import com.skillforge.exception.InvalidTokenException;
+import com.skillforge.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates opaque refresh tokens.
+ *
+ * Each refresh consumes the presented token and returns a new one from the same
+ * family. Presenting a token that was already consumed means it leaked (or the
+ * client replayed it), so the whole family is revoked and the user must sign in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${app.jwt.refresh-expiration:1209600000}")
+    private long refreshTokenTtlMs;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /** A newly issued refresh token and the user it belongs to */
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /**
+     * Start a new token family (login, registration, password change)
+     */
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consume a refresh token and issue its successor
+     *
+     * @throws InvalidTokenException if the token is unknown, expired or already used
+     */
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public Rotation rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new InvalidTokenException("Refresh token is required");
+        }
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+
+        LocalDateTime now = LocalDateTime.now();
+        if (token.getExpiresAt().isBefore(now)) {
+            throw new InvalidTokenException("Refresh token has expired");
+        }
+        // Conditional update so two concurrent refreshes cannot both win
+        if (token.getRevokedAt() != null || refreshTokenRepository.consume(token.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            logger.warn("Refresh token reuse for user {}; revoked {} tokens in its family",
+                    token.getUser().getId(), revoked);
+            throw new InvalidTokenException("Refresh token has already been used");
+        }
+
+        User user = token.getUser();
+        return new Rotation(user, issue(user, token.getFamilyId()));
+    }
+
+    /**
+     * Revoke the family of the presented token (logout). Unknown tokens are ignored.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    public void revokeAllForUser(User user) {
+        refreshTokenRepository.deleteByUser(user);
+    }
+
+    @Scheduled(cron = "${app.jwt.revocation-purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setTokenHash(hash(rawToken));
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshTokenTtlMs)));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.skillforge.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replication lag guard for the read replica. Every heartbeat-interval-ms, on its
+ * own thread, it stamps the replication_heartbeat row on the primary and reads it
+ * back from the replica; the difference from the replica's clock is how far behind
+ * the replica is (plus up to one interval). While that stays within max-lag-ms
+ * read-only transactions may use the replica; when it grows, the replica cannot be
+ * reached, or the measurement itself goes stale, they go back to the primary.
+ *
+ * Assumes the database servers' clocks are in sync (NTP).
+ */
+@Service
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired(required = false)
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.datasource.replica.max-lag-ms:3000}")
+    private long maxLagMs;
+
+    @Value("${app.datasource.replica.heartbeat-interval-ms:1000}")
+    private long heartbeatIntervalMs;
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+
+    // Its own thread, so a busy shared scheduler cannot leave routing on an unmeasured replica
+    private ScheduledExecutorService heartbeat;
+
+    private volatile boolean replicaUsable;
+    /** System.nanoTime of the last check that found the replica usable */
+    private volatile long usableSinceCheckNanos;
+    /** Last measured lag in milliseconds, or -1 if unknown */
+    private volatile long lagMs = -1;
+    private volatile LocalDateTime lastCheckedAt;
+    private volatile String lastError;
+
+    @PostConstruct
+    public void init() {
+        if (replicaDataSource == null) {
+            return;
+        }
+        primaryJdbc = new JdbcTemplate(primaryDataSource);
+        replicaJdbc = new JdbcTemplate(replicaDataSource);
+        Gauge.builder("db.replica.lag", this, monitor -> monitor.lagMs < 0 ? Double.NaN : monitor.lagMs)
+                .baseUnit("milliseconds")
+                .description("Replication lag of the read replica, as measured by the heartbeat")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.usable", this, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+                .description("1 while read-only transactions are routed to the replica")
+                .register(meterRegistry);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule; the next beat tries again
+                logger.error("Replica heartbeat failed", e);
+            }
+        }, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    /**
+     * True while the last heartbeat found the replica within max-lag-ms and that
+     * heartbeat is recent; if checks stop (e.g. the primary hangs the update), reads
+     * go back to the primary rather than trusting an old measurement
+     */
+    public boolean isReplicaUsable() {
+        if (!replicaUsable) {
+            return false;
+        }
+        long ageMs = (System.nanoTime() - usableSinceCheckNanos) / 1_000_000L;
+        return ageMs <= 2 * heartbeatIntervalMs + maxLagMs;
+    }
+
+    void check() {
+        if (replicaDataSource == null) {
+            return;
+        }
+        try {
+            if (primaryJdbc.update("UPDATE replication_heartbeat SET beat_at = NOW(6) WHERE id = 1") == 0) {
+                primaryJdbc.update("INSERT IGNORE INTO replication_heartbeat (id, beat_at) VALUES (1, NOW(6))");
+            }
+        } catch (DataAccessException e) {
+            // Reads keep their current routing; the replica's view of the beat just gets older
+            logger.warn("Could not write the replication heartbeat: {}", e.getMessage());
+        }
+
+        Long lag;
+        String error = null;
+        try {
+            lag = replicaJdbc.queryForObject(
+                    "SELECT TIMESTAMPDIFF(MICROSECOND, beat_at, NOW(6)) DIV 1000 FROM replication_heartbeat WHERE id = 1",
+                    Long.class);
+        } catch (EmptyResultDataAccessException e) {
+            lag = null;
+            error = "No heartbeat on the replica yet";
+        } catch (DataAccessException e) {
+            lag = null;
+            error = e.getMessage();
+        }
+
+        boolean usable = lag != null && lag <= maxLagMs;
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("Read replica in use (lag {} ms)", lag);
+            } else {
+                logger.warn("Read replica out of use, reads go to the primary: {}",
+                        error != null ? error : "lag " + lag + " ms exceeds " + maxLagMs + " ms");
+            }
+        }
+        lagMs = lag != null ? Math.max(lag, 0) : -1;
+        lastError = error;
+        lastCheckedAt = LocalDateTime.now();
+        if (usable) {
+            usableSinceCheckNanos = System.nanoTime();
+        }
+        replicaUsable = usable;
+    }
+
+    /**
+     * Routing state for the admin dashboard
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("replicaConfigured", replicaDataSource != null);
+        status.put("replicaUsable", isReplicaUsable());
+        status.put("lagMs", lagMs >= 0 ? lagMs : null);
+        status.put("maxLagMs", maxLagMs);
+        status.put("lastCheckedAt", lastCheckedAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+}
@@ -0,0 +1,251 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.CourseResource;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JPEG previews of course resource PDFs: a small first-page thumbnail, made in
+ * the background right after upload, and single pages rendered on demand at a
+ * requested width. Images are cached on disk by content hash, page and width in a
+ * size-bounded LRU cache, so identical PDFs share previews and a page is rendered
+ * once however often it is viewed.
+ *
+ * Rendering is CPU and memory heavy, so at most max-concurrent-renders run at a
+ * time; requests that cannot get a slot within render-wait-ms are refused with
+ * ServiceBusyException. Concurrent requests for the same image share one render.
+ */
+@Service
+public class ResourcePreviewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourcePreviewService.class);
+
+    /** Requested widths are rounded up to a multiple of this, to bound the variants cached per page */
+    private static final int WIDTH_STEP = 160;
+
+    @Autowired
+    private CourseResourceService courseResourceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.resources.preview.cache-dir:uploads/previews}")
+    private String cacheDir;
+
+    @Value("${app.resources.preview.cache-max-bytes:536870912}")
+    private long cacheMaxBytes;
+
+    @Value("${app.resources.preview.thumbnail-width:240}")
+    private int thumbnailWidth;
+
+    @Value("${app.resources.preview.max-width:1600}")
+    private int maxWidth;
+
+    @Value("${app.resources.preview.jpeg-quality:0.75}")
+    private float jpegQuality;
+
+    @Value("${app.resources.preview.render-wait-ms:2000}")
+    private long renderWaitMs;
+
+    private final Semaphore renderSlots;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    private DiskLruCache cache;
+    private Timer renderTimer;
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    public ResourcePreviewService(@Value("${app.resources.preview.max-concurrent-renders:2}") int maxConcurrentRenders) {
+        this.renderSlots = new Semaphore(maxConcurrentRenders);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        cache = new DiskLruCache(Paths.get(cacheDir), cacheMaxBytes);
+        cache.load();
+
+        renderTimer = Timer.builder("resource.preview.render")
+                .description("Time to render one PDF page to JPEG")
+                .register(meterRegistry);
+        cacheHits = Counter.builder("resource.preview.cache")
+                .tag("result", "hit")
+                .description("Page preview requests by cache result")
+                .register(meterRegistry);
+        cacheMisses = Counter.builder("resource.preview.cache")
+                .tag("result", "miss")
+                .description("Page preview requests by cache result")
+                .register(meterRegistry);
+        Gauge.builder("resource.preview.cache.bytes", cache, DiskLruCache::getTotalBytes)
+                .baseUnit("bytes")
+                .description("Size of the page preview cache on disk")
+                .register(meterRegistry);
+        Gauge.builder("resource.preview.cache.evictions", cache, DiskLruCache::getEvictions)
+                .description("Page previews evicted from the cache since startup")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The first-page thumbnail, rendered now if it is not cached
+     */
+    public Preview thumbnail(CourseResource resource) throws IOException {
+        return render(resource, 1, thumbnailWidth);
+    }
+
+    /**
+     * One page at (about) {@code width} pixels wide, rendered now if it is not cached
+     *
+     * @param pageNumber 1-based
+     */
+    public Preview page(CourseResource resource, int pageNumber, int width) throws IOException {
+        if (pageNumber < 1) {
+            throw new InvalidRequestException("Page numbers start at 1");
+        }
+        int steps = (Math.max(width, 1) + WIDTH_STEP - 1) / WIDTH_STEP;
+        return render(resource, pageNumber, Math.min(steps * WIDTH_STEP, maxWidth));
+    }
+
+    /**
+     * Cache the thumbnail of a PDF that is already open, e.g. for text extraction
+     * after upload. Best effort: failures are logged and left to on-demand rendering.
+     */
+    public void cacheThumbnail(String contentHash, PDDocument document) {
+        String key = key(contentHash, 1, thumbnailWidth);
+        if (contentHash == null || document.getNumberOfPages() == 0 || cache.get(key) != null) {
+            return;
+        }
+        try {
+            cache.put(key, renderJpeg(document, 0, thumbnailWidth));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not render thumbnail for blob {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private Preview render(CourseResource resource, int pageNumber, int width) throws IOException {
+        String contentHash = courseResourceService.getContentHash(resource);
+        String key = key(contentHash, pageNumber, width);
+        Path cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return new Preview(cached, key);
+        }
+        cacheMisses.increment();
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return new Preview(await(running), key);
+        }
+        try {
+            Path file = renderAndCache(Paths.get(resource.getFilePath()), pageNumber, width, key);
+            mine.complete(file);
+            return new Preview(file, key);
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private Path renderAndCache(Path pdf, int pageNumber, int width, String key) throws IOException {
+        boolean acquired;
+        try {
+            acquired = renderSlots.tryAcquire(renderWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new ServiceBusyException("Page previews are busy, please retry shortly", 2);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+            if (pageNumber > document.getNumberOfPages()) {
+                throw new InvalidRequestException("This document has " + document.getNumberOfPages() + " page(s)");
+            }
+            return cache.put(key, renderJpeg(document, pageNumber - 1, width));
+        } finally {
+            sample.stop(renderTimer);
+            renderSlots.release();
+        }
+    }
+
+    private byte[] renderJpeg(PDDocument document, int pageIndex, int width) throws IOException {
+        PDPage page = document.getPage(pageIndex);
+        boolean sideways = page.getRotation() % 180 != 0;
+        float pointsWide = sideways ? page.getCropBox().getHeight() : page.getCropBox().getWidth();
+        float scale = width / Math.max(pointsWide, 1f);
+        BufferedImage image = new PDFRenderer(document).renderImage(pageIndex, scale, ImageType.RGB);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static String key(String contentHash, int pageNumber, int width) {
+        return contentHash + "-p" + pageNumber + "-w" + width + ".jpg";
+    }
+
+    /**
+     * A cached preview image
+     *
+     * @param entityTag stable validator for the image's bytes
+     */
+    public record Preview(Path file, String entityTag) {
+    }
+}
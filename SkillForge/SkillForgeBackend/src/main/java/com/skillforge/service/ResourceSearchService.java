@@ -0,0 +1,121 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.User;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.repository.CourseRepository;
+import com.skillforge.repository.EnrollmentRepository;
+import com.skillforge.repository.ResourcePageTextRepository;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Full-text search over the extracted text of course resource PDFs. Queries run
+ * against the FULLTEXT index on resource_page_text only; no PDF is opened.
+ */
+@Service
+public class ResourceSearchService {
+
+    /** InnoDB's default innodb_ft_min_token_size; shorter words are not in the index */
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final int MAX_TERMS = 10;
+    private static final int SNIPPET_CONTEXT = 120;
+
+    @Autowired
+    private ResourcePageTextRepository pageTextRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseAccessService courseAccessService;
+
+    /**
+     * Pages matching every word of {@code query} (as a prefix), in the caller's courses:
+     * enrolled ones for students, own ones for instructors, all for admins
+     *
+     * @param courseId optionally limit to one course the caller can access
+     */
+    public List<Map<String, Object>> search(AuthenticatedUser user, String query, Long courseId, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty()) {
+            throw new InvalidRequestException("Search for at least one word of " + MIN_TERM_LENGTH + " or more characters");
+        }
+        String booleanQuery = String.join(" ", terms.stream().map(term -> "+" + term + "*").toList());
+
+        List<Object[]> rows;
+        if (courseId != null) {
+            if (!courseAccessService.courseAccess(user, courseId).granted()) {
+                throw new ForbiddenAccessException("You do not have access to this course");
+            }
+            rows = pageTextRepository.searchInCourses(booleanQuery, List.of(courseId), limit);
+        } else if (user.getRole() == User.Role.ADMIN) {
+            rows = pageTextRepository.searchAll(booleanQuery, limit);
+        } else {
+            List<Long> courseIds = user.getRole() == User.Role.INSTRUCTOR
+                    ? courseRepository.findIdsByInstructorId(user.getId())
+                    : enrollmentRepository.findCourseIdsByStudentId(user.getId());
+            if (courseIds.isEmpty()) {
+                return List.of();
+            }
+            rows = pageTextRepository.searchInCourses(booleanQuery, courseIds, limit);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Object[] row : rows) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("resourceId", ((Number) row[0]).longValue());
+            result.put("title", row[1]);
+            result.put("courseId", ((Number) row[2]).longValue());
+            result.put("page", ((Number) row[3]).intValue());
+            result.put("snippet", snippet((String) row[4], terms));
+            result.put("score", ((Number) row[5]).doubleValue());
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Lower-cased words of the query, without boolean-mode operators
+     */
+    private static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_TERM_LENGTH && !terms.contains(word) && terms.size() < MAX_TERMS) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * The part of the page around the first matching word
+     */
+    private static String snippet(String content, List<String> terms) {
+        String lower = content.toLowerCase(Locale.ROOT);
+        int match = -1;
+        for (String term : terms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (match < 0 || index < match)) {
+                match = index;
+            }
+        }
+        int start = Math.max(0, (match < 0 ? 0 : match) - SNIPPET_CONTEXT);
+        int end = Math.min(content.length(), (match < 0 ? 0 : match) + SNIPPET_CONTEXT);
+        return (start > 0 ? "…" : "") + content.substring(start, end).trim() + (end < content.length() ? "…" : "");
+    }
+}
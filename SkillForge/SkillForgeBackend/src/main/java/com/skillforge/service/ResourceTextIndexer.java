@@ -0,0 +1,229 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.CourseResource;
+import com.skillforge.entity.ResourcePageText;
+import com.skillforge.repository.CourseResourceRepository;
+import com.skillforge.repository.ResourcePageTextRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Background text extraction for course resource PDFs. The resource row's
+ * textStatus is the queue: uploads start it as PENDING and publish an event that
+ * hands the resource to a small worker pool; anything the pool cannot take (queue
+ * full, restart, another node crashed mid-extraction) is found again by the sweep.
+ * Workers claim a resource with a conditional update, so each is extracted once
+ * even with several nodes.
+ *
+ * Text is stored per page in resource_page_text. A PDF whose bytes were already
+ * indexed for another resource (same content hash) gets a copy of those pages
+ * without being parsed again. The same pass caches the first-page thumbnail.
+ */
+@Service
+public class ResourceTextIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTextIndexer.class);
+
+    @Autowired
+    private CourseResourceRepository courseResourceRepository;
+
+    @Autowired
+    private ResourcePageTextRepository pageTextRepository;
+
+    @Autowired
+    private ResourcePreviewService resourcePreviewService;
+
+    @Autowired
+    @Qualifier("resourceTextExecutor")
+    private ThreadPoolTaskExecutor resourceTextExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.resources.text.max-pages:1000}")
+    private int maxPages;
+
+    @Value("${app.resources.text.max-page-chars:20000}")
+    private int maxPageChars;
+
+    @Value("${app.resources.text.stale-after-ms:900000}")
+    private long staleAfterMs;
+
+    @Value("${app.resources.text.sweep-batch-size:50}")
+    private int sweepBatchSize;
+
+    /** Resources submitted to the pool from this node and not finished yet */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Timer extractTimer;
+    private Counter failures;
+
+    @PostConstruct
+    public void registerMetrics() {
+        extractTimer = Timer.builder("resource.text.extract")
+                .description("Time to extract and index the text of one resource PDF")
+                .register(meterRegistry);
+        failures = Counter.builder("resource.text.failures")
+                .description("Resource PDFs whose text could not be extracted")
+                .register(meterRegistry);
+        Gauge.builder("resource.text.queue", inFlight, Set::size)
+                .description("Resource PDFs queued or being extracted on this node")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceUploaded(CourseResourceUploadedEvent event) {
+        submit(event.resourceId());
+    }
+
+    /**
+     * Queue resources still waiting for extraction: older rows, overflow from a full
+     * pool, and extractions abandoned by a node that went away
+     */
+    @Scheduled(fixedDelayString = "${app.resources.text.sweep-interval-ms:60000}",
+               initialDelayString = "${app.resources.text.sweep-initial-delay-ms:60000}")
+    public void sweepPending() {
+        List<Long> ids = courseResourceRepository.findIdsAwaitingExtraction(staleBefore(),
+                CourseResource.TextStatus.PENDING, CourseResource.TextStatus.EXTRACTING, PageRequest.of(0, sweepBatchSize));
+        for (Long id : ids) {
+            if (!submit(id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the pool is full
+     */
+    private boolean submit(Long resourceId) {
+        if (!inFlight.add(resourceId)) {
+            return true;
+        }
+        try {
+            resourceTextExecutor.execute(() -> {
+                try {
+                    extract(resourceId);
+                } finally {
+                    inFlight.remove(resourceId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(resourceId);
+            logger.debug("Text extraction pool full; resource {} left for the sweep", resourceId);
+            return false;
+        }
+    }
+
+    private void extract(Long resourceId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (courseResourceRepository.claimForExtraction(resourceId, now, staleBefore(),
+                CourseResource.TextStatus.PENDING, CourseResource.TextStatus.EXTRACTING) == 0) {
+            return;
+        }
+        CourseResource resource = courseResourceRepository.findById(resourceId).orElse(null);
+        if (resource == null) {
+            return;
+        }
+        Long courseId = resource.getCourse().getId();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            CourseResource indexed = resource.getContentHash() == null ? null : courseResourceRepository
+                    .findFirstByContentHashAndTextStatusAndIdNot(resource.getContentHash(), CourseResource.TextStatus.INDEXED, resourceId)
+                    .orElse(null);
+            if (indexed != null) {
+                transaction().executeWithoutResult(status -> {
+                    pageTextRepository.deleteByResourceId(resourceId);
+                    pageTextRepository.copyPages(indexed.getId(), resourceId, courseId);
+                    courseResourceRepository.updateTextStatus(resourceId, CourseResource.TextStatus.INDEXED,
+                            indexed.getTextPageCount(), LocalDateTime.now());
+                });
+                logger.info("Resource {} reuses the text of identical resource {}", resourceId, indexed.getId());
+                return;
+            }
+
+            List<String> pages = readPages(Paths.get(resource.getFilePath()), resource.getContentHash());
+            List<ResourcePageText> rows = new ArrayList<>();
+            for (int i = 0; i < pages.size(); i++) {
+                if (!pages.get(i).isEmpty()) {
+                    rows.add(new ResourcePageText(null, resourceId, courseId, i + 1, pages.get(i)));
+                }
+            }
+            transaction().executeWithoutResult(status -> {
+                pageTextRepository.deleteByResourceId(resourceId);
+                pageTextRepository.saveAll(rows);
+                courseResourceRepository.updateTextStatus(resourceId, CourseResource.TextStatus.INDEXED,
+                        pages.size(), LocalDateTime.now());
+            });
+            logger.info("Indexed {} page(s) of resource {} ({} with text)", pages.size(), resourceId, rows.size());
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            // Unreadable or encrypted PDFs are not retried; re-uploading the file starts over
+            logger.warn("Text extraction failed for resource {}: {}", resourceId, e.getMessage());
+            courseResourceRepository.updateTextStatus(resourceId, CourseResource.TextStatus.FAILED, null, LocalDateTime.now());
+        } finally {
+            sample.stop(extractTimer);
+        }
+    }
+
+    /**
+     * Text of each page, whitespace collapsed and capped at max-page-chars; at most max-pages pages.
+     * The first-page thumbnail is rendered while the document is open.
+     */
+    private List<String> readPages(Path file, String contentHash) throws IOException {
+        List<String> pages = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            resourcePreviewService.cacheThumbnail(contentHash, document);
+            int pageCount = Math.min(document.getNumberOfPages(), maxPages);
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= pageCount; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(document).replaceAll("\\s+", " ").trim();
+                pages.add(text.length() > maxPageChars ? text.substring(0, maxPageChars) : text);
+            }
+        }
+        return pages;
+    }
+
+    private LocalDateTime staleBefore() {
+        return LocalDateTime.now().minus(Duration.ofMillis(staleAfterMs));
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+}
@@ -0,0 +1,279 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.StoredBlob;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves existing files into the sharded blob layout, in batches an admin can run
+ * while the site is up:
+ *
+ * - blobs still at the top of the blob directory are linked into their shard,
+ *   their rows repointed, and the old name removed after commit
+ * - files from before the blob store (uploads/videos, uploads/resources, ...) are
+ *   hashed into the store, deduplicating as they go, and the originals removed
+ *   after their rows are repointed
+ *
+ * Each file moves in its own transaction, and the new copy is written before the
+ * database changes, so an interrupted run leaves at most an extra file for the
+ * reconciler. Reruns continue with whatever is left.
+ */
+@Service
+public class StorageMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private FileReferenceService fileReferenceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.storage.migration.max-bytes-per-second:52428800}")
+    private long maxBytesPerSecond;
+
+    @Value("${app.storage.migration.batch-size:100}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Migrate up to {@code limit} files
+     *
+     * @param dryRun only count what would move
+     * @return counts, and whether anything is left to migrate
+     */
+    public Map<String, Object> migrate(int limit, boolean dryRun) throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidRequestException("A storage migration is already running");
+        }
+        try {
+            IoThrottle throttle = new IoThrottle(maxBytesPerSecond);
+            long started = System.currentTimeMillis();
+            int processed = 0;
+            int resharded = 0;
+            int imported = 0;
+            int missing = 0;
+            int failed = 0;
+            long bytes = 0;
+
+            long lastBlobId = 0;
+            while (processed < limit) {
+                List<StoredBlob> page = storedBlobRepository.findByIdGreaterThanOrderByIdAsc(lastBlobId, PageRequest.of(0, batchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (StoredBlob blob : page) {
+                    if (processed >= limit) {
+                        break;
+                    }
+                    lastBlobId = blob.getId();
+                    Path current = Paths.get(blob.getStoragePath());
+                    if (samePath(current, blobStorageService.shardedPath(current.getFileName().toString()))) {
+                        continue;
+                    }
+                    processed++;
+                    if (dryRun) {
+                        resharded++;
+                        bytes += blob.getSizeBytes();
+                        continue;
+                    }
+                    try {
+                        throttle.acquire(blob.getSizeBytes());
+                        if (reshard(blob.getSha256())) {
+                            resharded++;
+                            bytes += blob.getSizeBytes();
+                        } else {
+                            missing++;
+                        }
+                    } catch (UncheckedIOException e) {
+                        failed++;
+                        logger.error("Could not move blob {} into its shard: {}", blob.getSha256(), e.getMessage());
+                    }
+                }
+            }
+
+            String after = "";
+            while (processed < limit) {
+                List<String> paths = fileReferenceService.findLegacyFilePaths(after, batchSize);
+                if (paths.isEmpty()) {
+                    break;
+                }
+                for (String path : paths) {
+                    if (processed >= limit) {
+                        break;
+                    }
+                    after = path;
+                    Path file = Paths.get(path);
+                    if (!Files.isRegularFile(file)) {
+                        // Nothing to move; the row keeps its (broken) path
+                        missing++;
+                        continue;
+                    }
+                    processed++;
+                    try {
+                        long size = Files.size(file);
+                        if (!dryRun) {
+                            throttle.acquire(size);
+                            importLegacy(path, file);
+                        }
+                        imported++;
+                        bytes += size;
+                    } catch (UncheckedIOException | IOException e) {
+                        failed++;
+                        logger.error("Could not import {} into the blob store: {}", path, e.getMessage());
+                    }
+                }
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("dryRun", dryRun);
+            report.put("reshardedBlobs", resharded);
+            report.put("importedFiles", imported);
+            report.put("missingFiles", missing);
+            report.put("failed", failed);
+            report.put("bytes", bytes);
+            report.put("complete", processed < limit && failed == 0);
+            report.put("durationMs", System.currentTimeMillis() - started);
+            logger.info("Storage migration{}: {}", dryRun ? " (dry run)" : "", report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Link one flat blob into its shard and repoint its rows
+     *
+     * @return false if the blob's file is missing
+     */
+    private boolean reshard(String sha256) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            StoredBlob blob = storedBlobRepository.findBySha256ForUpdate(sha256).orElse(null);
+            if (blob == null) {
+                return true;
+            }
+            Path source = Paths.get(blob.getStoragePath());
+            Path target = blobStorageService.shardedPath(source.getFileName().toString());
+            if (samePath(source, target)) {
+                return true;
+            }
+            if (!Files.isRegularFile(source)) {
+                logger.warn("Blob {} has no file at {}", sha256, source);
+                return false;
+            }
+            linkOrCopy(source, target);
+
+            String oldPath = blob.getStoragePath();
+            String newPath = target.toString();
+            blob.setStoragePath(newPath);
+            storedBlobRepository.save(blob);
+            fileReferenceService.repointReferences(oldPath, newPath);
+            afterCompletion(source, target);
+            return true;
+        }));
+    }
+
+    /**
+     * Hash one pre-blob-store file into the store and repoint its rows
+     */
+    private void importLegacy(String path, Path file) throws IOException {
+        Path staging = blobStorageService.getBlobDir().resolve("tmp").resolve("import-" + UUID.randomUUID() + ".part");
+        Files.createDirectories(staging.getParent());
+        linkOrCopy(file, staging);
+        String fileName = file.getFileName().toString();
+        String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+        // adopt() consumes the staging file and takes one reference
+        BlobStorageService.StoredFile stored = blobStorageService.adopt(staging, extension);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int updated = fileReferenceService.repointReferences(path, stored.storagePath());
+            if (updated == 0) {
+                // The rows went away meanwhile; their file is the reconciler's now
+                blobStorageService.release(stored.storagePath());
+                return;
+            }
+            afterCompletion(file, null);
+        });
+        logger.info("Imported {} as blob {}{}", path, stored.sha256(), stored.deduplicated() ? " (deduplicated)" : "");
+    }
+
+    /**
+     * Hard link {@code target} to {@code source} (same bytes, no copy), falling back
+     * to a copy across file systems. The new name gets a fresh mtime so the orphan
+     * reconciler leaves it alone until the rows pointing at it commit.
+     */
+    private static void linkOrCopy(Path source, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, source);
+            } catch (FileAlreadyExistsException e) {
+                // Left by an earlier interrupted run; keep it unless that run was cut off mid-copy
+                if (Files.size(target) != Files.size(source)) {
+                    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(source, target);
+            }
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * After commit delete {@code committedDelete}; after rollback delete {@code rolledBackDelete}
+     */
+    private static void afterCompletion(Path committedDelete, Path rolledBackDelete) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Path delete = status == STATUS_COMMITTED ? committedDelete : rolledBackDelete;
+                if (delete == null) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(delete);
+                } catch (IOException e) {
+                    logger.error("Error deleting {} after migration: {}", delete, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static boolean samePath(Path a, Path b) {
+        return a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize());
+    }
+}
@@ -0,0 +1,256 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.StorageUsage;
+import com.skillforge.exception.StorageQuotaExceededException;
+import com.skillforge.repository.AssignmentSubmissionRepository;
+import com.skillforge.repository.CourseResourceRepository;
+import com.skillforge.repository.StorageUsageRepository;
+import com.skillforge.repository.VideoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Storage counters per course, per uploading user and for the platform, with quotas.
+ *
+ * Uploads call {@link #checkQuota} before streaming (so a full course is refused
+ * before any bytes are written) and {@link #charge} once the real size is known;
+ * deletes call {@link #credit}. Both run inside the caller's transaction, so the
+ * counters commit or roll back together with the row they describe. Each counter
+ * changes with one conditional UPDATE, and the quota check and increment are that
+ * same statement, so concurrent uploads cannot overshoot a quota between them.
+ */
+@Service
+public class StorageQuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageQuotaService.class);
+
+    private static final long GLOBAL_ID = 0L;
+
+    @Autowired
+    private StorageUsageRepository storageUsageRepository;
+
+    @Autowired
+    private CourseResourceRepository courseResourceRepository;
+
+    @Autowired
+    private AssignmentSubmissionRepository submissionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    /** Zero or less means unlimited, for this and the other quotas */
+    @Value("${app.storage.quota.course-bytes:5368709120}")
+    private long courseQuotaBytes;
+
+    @Value("${app.storage.quota.user-bytes:21474836480}")
+    private long userQuotaBytes;
+
+    @Value("${app.storage.quota.global-bytes:0}")
+    private long globalQuotaBytes;
+
+    /**
+     * Refuse an upload up front if it cannot fit
+     *
+     * @param declaredSize Content-Length if known, otherwise -1 (only full quotas are refused)
+     */
+    public void checkQuota(Long courseId, Long userId, long declaredSize) {
+        long size = Math.max(declaredSize, 0);
+        checkScope(StorageUsage.Scope.GLOBAL, GLOBAL_ID, size, globalQuotaBytes, "Platform storage is full");
+        checkScope(StorageUsage.Scope.COURSE, courseId, size, courseQuotaBytes, "This course has reached its storage quota");
+        checkScope(StorageUsage.Scope.USER, userId, size, userQuotaBytes, "You have reached your storage quota");
+    }
+
+    private void checkScope(StorageUsage.Scope scope, Long scopeId, long size, long quota, String message) {
+        if (scopeId == null || quota <= 0) {
+            return;
+        }
+        long used = storageUsageRepository.findByScopeAndScopeId(scope, scopeId).map(StorageUsage::getTotalBytes).orElse(0L);
+        if (used + size > quota || (size == 0 && used >= quota)) {
+            throw new StorageQuotaExceededException(message);
+        }
+    }
+
+    /**
+     * Count a stored upload against the platform, its course and its uploader; throws
+     * (rolling the caller back) if any quota would be exceeded
+     *
+     * @param userId uploader, or null to skip the per-user counter
+     */
+    @Transactional
+    public void charge(StorageUsage.Kind kind, Long courseId, Long userId, long bytes) {
+        // Always GLOBAL, COURSE, USER, so concurrent uploads lock the rows in the same order
+        add(StorageUsage.Scope.GLOBAL, GLOBAL_ID, kind, bytes, 1, globalQuotaBytes, "Platform storage is full");
+        add(StorageUsage.Scope.COURSE, courseId, kind, bytes, 1, courseQuotaBytes, "This course has reached its storage quota");
+        if (userId != null) {
+            add(StorageUsage.Scope.USER, userId, kind, bytes, 1, userQuotaBytes, "You have reached your storage quota");
+        }
+    }
+
+    /**
+     * Give back the bytes of a deleted upload
+     */
+    @Transactional
+    public void credit(StorageUsage.Kind kind, Long courseId, Long userId, Long bytes) {
+        long size = bytes != null ? bytes : 0;
+        add(StorageUsage.Scope.GLOBAL, GLOBAL_ID, kind, -size, -1, 0, null);
+        add(StorageUsage.Scope.COURSE, courseId, kind, -size, -1, 0, null);
+        if (userId != null) {
+            add(StorageUsage.Scope.USER, userId, kind, -size, -1, 0, null);
+        }
+    }
+
+    private void add(StorageUsage.Scope scope, Long scopeId, StorageUsage.Kind kind, long bytes, long files,
+                     long quota, String message) {
+        long limit = quota > 0 ? quota : Long.MAX_VALUE / 2;
+        if (storageUsageRepository.addUsage(scope.name(), scopeId, kind.name(), bytes, files, limit) > 0) {
+            return;
+        }
+        // First upload for this scope, or over quota; tell them apart by creating the row
+        storageUsageRepository.createIfMissing(scope.name(), scopeId);
+        if (storageUsageRepository.addUsage(scope.name(), scopeId, kind.name(), bytes, files, limit) == 0) {
+            throw new StorageQuotaExceededException(message);
+        }
+    }
+
+    /**
+     * Give back everything stored in a course that is about to be deleted; its
+     * resources, videos and submissions go with it by cascade, without passing
+     * through {@link #credit}
+     */
+    @Transactional
+    public void releaseCourse(Long courseId) {
+        for (Map.Entry<StorageUsage.Kind, List<Object[]>> entry : sumByCourseAndUser(courseId).entrySet()) {
+            for (Object[] row : entry.getValue()) {
+                Long userId = (Long) row[1];
+                long bytes = ((Number) row[2]).longValue();
+                long files = ((Number) row[3]).longValue();
+                add(StorageUsage.Scope.GLOBAL, GLOBAL_ID, entry.getKey(), -bytes, -files, 0, null);
+                if (userId != null) {
+                    add(StorageUsage.Scope.USER, userId, entry.getKey(), -bytes, -files, 0, null);
+                }
+            }
+        }
+        storageUsageRepository.findByScopeAndScopeId(StorageUsage.Scope.COURSE, courseId)
+                .ifPresent(storageUsageRepository::delete);
+    }
+
+    /**
+     * Recompute every counter from the resource, submission and video tables, e.g.
+     * after a restore or manual cleanup. Uploads that commit while it runs may be
+     * counted once too often or not at all, so run it when the site is quiet.
+     */
+    @Transactional
+    public Map<String, Object> rebuild() {
+        Map<String, StorageUsage> usage = new HashMap<>();
+        for (Map.Entry<StorageUsage.Kind, List<Object[]>> entry : sumByCourseAndUser(null).entrySet()) {
+            for (Object[] row : entry.getValue()) {
+                Long courseId = (Long) row[0];
+                Long userId = (Long) row[1];
+                long bytes = ((Number) row[2]).longValue();
+                long files = ((Number) row[3]).longValue();
+                accumulate(usage, StorageUsage.Scope.GLOBAL, GLOBAL_ID, entry.getKey(), bytes, files);
+                accumulate(usage, StorageUsage.Scope.COURSE, courseId, entry.getKey(), bytes, files);
+                if (userId != null) {
+                    accumulate(usage, StorageUsage.Scope.USER, userId, entry.getKey(), bytes, files);
+                }
+            }
+        }
+        accumulate(usage, StorageUsage.Scope.GLOBAL, GLOBAL_ID, StorageUsage.Kind.RESOURCE, 0, 0);
+
+        storageUsageRepository.deleteAllInBatch();
+        storageUsageRepository.saveAll(usage.values());
+        logger.info("Rebuilt {} storage usage counters", usage.size());
+        return describe(usage.get(StorageUsage.Scope.GLOBAL + ":" + GLOBAL_ID), globalQuotaBytes);
+    }
+
+    private Map<StorageUsage.Kind, List<Object[]>> sumByCourseAndUser(Long courseId) {
+        Map<StorageUsage.Kind, List<Object[]>> sums = new LinkedHashMap<>();
+        sums.put(StorageUsage.Kind.RESOURCE, courseResourceRepository.sumStorageByCourseAndUser(courseId));
+        sums.put(StorageUsage.Kind.SUBMISSION, submissionRepository.sumStorageByCourseAndUser(courseId));
+        sums.put(StorageUsage.Kind.VIDEO, videoRepository.sumStorageByCourseAndUser(courseId));
+        return sums;
+    }
+
+    private static void accumulate(Map<String, StorageUsage> usage, StorageUsage.Scope scope, Long scopeId,
+                                   StorageUsage.Kind kind, long bytes, long files) {
+        StorageUsage row = usage.computeIfAbsent(scope + ":" + scopeId, key -> {
+            StorageUsage created = new StorageUsage();
+            created.setScope(scope);
+            created.setScopeId(scopeId);
+            created.setUpdatedAt(LocalDateTime.now());
+            return created;
+        });
+        switch (kind) {
+            case RESOURCE -> row.setResourceBytes(row.getResourceBytes() + bytes);
+            case SUBMISSION -> row.setSubmissionBytes(row.getSubmissionBytes() + bytes);
+            case VIDEO -> row.setVideoBytes(row.getVideoBytes() + bytes);
+        }
+        row.setFileCount(row.getFileCount() + files);
+    }
+
+    public StorageUsage getGlobalUsage() {
+        return getUsage(StorageUsage.Scope.GLOBAL, GLOBAL_ID);
+    }
+
+    public StorageUsage getUsage(StorageUsage.Scope scope, Long scopeId) {
+        return storageUsageRepository.findByScopeAndScopeId(scope, scopeId).orElseGet(() -> {
+            StorageUsage empty = new StorageUsage();
+            empty.setScope(scope);
+            empty.setScopeId(scopeId);
+            return empty;
+        });
+    }
+
+    /**
+     * Usage and quota of one scope, for dashboards
+     */
+    public Map<String, Object> describe(StorageUsage.Scope scope, Long scopeId) {
+        long quota = switch (scope) {
+            case GLOBAL -> globalQuotaBytes;
+            case COURSE -> courseQuotaBytes;
+            case USER -> userQuotaBytes;
+        };
+        return describe(getUsage(scope, scopeId), quota);
+    }
+
+    /**
+     * The {@code limit} courses and users using the most storage
+     */
+    public Map<String, Object> describeLargest(int limit) {
+        Map<String, Object> largest = new LinkedHashMap<>();
+        largest.put("courses", storageUsageRepository.findLargest(StorageUsage.Scope.COURSE, PageRequest.of(0, limit)).stream()
+                .map(usage -> describe(usage, courseQuotaBytes)).collect(Collectors.toList()));
+        largest.put("users", storageUsageRepository.findLargest(StorageUsage.Scope.USER, PageRequest.of(0, limit)).stream()
+                .map(usage -> describe(usage, userQuotaBytes)).collect(Collectors.toList()));
+        return largest;
+    }
+
+    private static Map<String, Object> describe(StorageUsage usage, long quota) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (usage == null) {
+            usage = new StorageUsage();
+        }
+        map.put("scope", usage.getScope());
+        map.put("scopeId", usage.getScopeId());
+        map.put("totalBytes", usage.getTotalBytes());
+        map.put("resourceBytes", usage.getResourceBytes());
+        map.put("submissionBytes", usage.getSubmissionBytes());
+        map.put("videoBytes", usage.getVideoBytes());
+        map.put("files", usage.getFileCount());
+        map.put("quotaBytes", quota > 0 ? quota : null);
+        map.put("updatedAt", usage.getUpdatedAt());
+        return map;
+    }
+}
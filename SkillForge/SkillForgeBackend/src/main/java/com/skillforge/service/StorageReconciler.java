@@ -0,0 +1,466 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.StoredBlob;
+import com.skillforge.repository.StoredBlobRepository;
+import com.skillforge.repository.VideoUploadSessionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+/**
+ * Background reclamation of files nothing points at any more: blobs whose rows were
+ * removed without releasing them (e.g. cascades from a course delete), files left by
+ * crashed uploads or interrupted migrations, and unreferenced pre-blob-store files.
+ *
+ * Each run walks a few directories of the storage tree and a batch of stored_blobs
+ * rows, paced by {@link IoThrottle}, so a full pass is spread over many runs. Nothing
+ * is deleted until it has been unreferenced for the grace period: files by mtime
+ * (every writer sets a fresh one), blobs by being seen with the same counts on two
+ * walks at least that far apart. Reference counts that are too low are raised at once,
+ * since that is always safe.
+ */
+@Service
+public class StorageReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageReconciler.class);
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private FileReferenceService fileReferenceService;
+
+    @Autowired
+    private VideoUploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Value("${app.storage.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.reconcile.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${app.storage.reconcile.grace-period-ms:86400000}")
+    private long gracePeriodMs;
+
+    @Value("${app.storage.reconcile.max-files-per-second:200}")
+    private int maxFilesPerSecond;
+
+    @Value("${app.storage.reconcile.directories-per-run:8}")
+    private int directoriesPerRun;
+
+    @Value("${app.storage.reconcile.blobs-per-run:500}")
+    private int blobsPerRun;
+
+    @Value("${app.storage.reconcile.interval-ms:60000}")
+    private long intervalMs;
+
+    @Value("${app.storage.reconcile.initial-delay-ms:300000}")
+    private long initialDelayMs;
+
+    @Value("${app.resources.upload-dir}")
+    private String resourcesDir;
+
+    @Value("${app.assignments.upload-dir}")
+    private String assignmentsDir;
+
+    @Value("${app.video.upload-dir}")
+    private String videosDir;
+
+    private record Suspect(int refCount, long references, long firstSeenMillis) {
+    }
+
+    /** Blob id -> counts when it was first seen over-counted */
+    private final Map<Long, Suspect> suspects = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService runner;
+
+    private int nextDirectory;
+    private long lastBlobId;
+
+    private volatile Stats currentPass = new Stats();
+    private volatile Stats lastPass;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Its own thread: a throttled run takes seconds and must not hold up the shared scheduler
+        runner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        runner.scheduleWithFixedDelay(this::reconcile, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (runner != null) {
+            runner.shutdownNow();
+        }
+    }
+
+    void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        IoThrottle throttle = new IoThrottle(maxFilesPerSecond);
+        try {
+            List<Path> directories = directories();
+            for (int i = 0; i < directoriesPerRun; i++) {
+                if (nextDirectory >= directories.size()) {
+                    finishPass();
+                    break;
+                }
+                reconcileDirectory(directories.get(nextDirectory++), throttle);
+            }
+            reconcileBlobs(throttle);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Storage reconciliation run failed", e);
+        }
+    }
+
+    /**
+     * Progress of the current pass and totals of the last complete one
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("dryRun", dryRun);
+        report.put("gracePeriodMs", gracePeriodMs);
+        report.put("maxFilesPerSecond", maxFilesPerSecond);
+        report.put("suspectBlobs", suspects.size());
+        Map<String, Object> current = currentPass.toMap();
+        current.put("directoriesDone", nextDirectory);
+        current.put("directoriesTotal", directories().size());
+        report.put("currentPass", current);
+        Stats last = lastPass;
+        report.put("lastPass", last == null ? null : last.toMap());
+        return report;
+    }
+
+    /**
+     * Units of the disk walk: the 256 top-level shards, the blob root itself (flat
+     * blobs, tmp, sessions) and each pre-blob-store upload directory
+     */
+    private List<Path> directories() {
+        Path blobDir = blobStorageService.getBlobDir();
+        List<Path> directories = new ArrayList<>(260);
+        for (int shard = 0; shard < 256; shard++) {
+            directories.add(blobDir.resolve(String.format("%02x", shard)));
+        }
+        directories.add(blobDir);
+        directories.add(Paths.get(resourcesDir));
+        directories.add(Paths.get(assignmentsDir));
+        directories.add(Paths.get(videosDir));
+        return directories;
+    }
+
+    private void finishPass() {
+        currentPass.completedAt = LocalDateTime.now();
+        lastPass = currentPass;
+        currentPass = new Stats();
+        nextDirectory = 0;
+        logger.info("Storage reconciliation pass complete: {}", lastPass.toMap());
+    }
+
+    private void reconcileDirectory(Path directory, IoThrottle throttle) throws InterruptedException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Path blobDir = blobStorageService.getBlobDir();
+        try {
+            if (samePath(directory, blobDir)) {
+                reconcileBlobRoot(blobDir, throttle);
+            } else if (samePath(directory.getParent(), blobDir)) {
+                for (Path file : regularFiles(directory, 2)) {
+                    throttle.acquire(1);
+                    currentPass.filesScanned.incrementAndGet();
+                    reconcileBlobFile(file);
+                }
+            } else {
+                reconcileLegacyDirectory(directory, throttle);
+            }
+        } catch (IOException e) {
+            logger.error("Error reconciling {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void reconcileBlobRoot(Path blobDir, IoThrottle throttle) throws IOException, InterruptedException {
+        for (Path file : regularFiles(blobDir, 1)) {
+            throttle.acquire(1);
+            currentPass.filesScanned.incrementAndGet();
+            reconcileBlobFile(file);
+        }
+        // Leftovers of crashed uploads and imports
+        Path tmp = blobDir.resolve("tmp");
+        if (Files.isDirectory(tmp)) {
+            for (Path file : regularFiles(tmp, 1)) {
+                throttle.acquire(1);
+                currentPass.filesScanned.incrementAndGet();
+                if (olderThanGrace(file)) {
+                    deleteOrphan(file, "tmp");
+                }
+            }
+        }
+        // Part files whose upload session row is gone
+        Path sessions = blobDir.resolve("sessions");
+        if (Files.isDirectory(sessions)) {
+            for (Path file : regularFiles(sessions, 1)) {
+                throttle.acquire(1);
+                currentPass.filesScanned.incrementAndGet();
+                String name = file.getFileName().toString();
+                String uploadId = name.endsWith(".part") ? name.substring(0, name.length() - 5) : name;
+                if (olderThanGrace(file) && !uploadSessionRepository.existsById(uploadId)) {
+                    deleteOrphan(file, "session");
+                }
+            }
+        }
+    }
+
+    /**
+     * A file in the blob tree is live only if the blob row for the hash in its name points at it
+     */
+    private void reconcileBlobFile(Path file) throws IOException {
+        Matcher matcher = BlobStorageService.BLOB_FILE_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            currentPass.unrecognizedFiles.incrementAndGet();
+            return;
+        }
+        StoredBlob blob = storedBlobRepository.findBySha256(matcher.group(1)).orElse(null);
+        if (blob != null && samePath(Paths.get(blob.getStoragePath()), file)) {
+            return;
+        }
+        if (olderThanGrace(file)) {
+            deleteOrphan(file, "blob-file");
+        }
+    }
+
+    private void reconcileLegacyDirectory(Path directory, IoThrottle throttle) throws IOException, InterruptedException {
+        Set<Path> referenced = new HashSet<>();
+        String after = "";
+        List<String> page;
+        while (!(page = fileReferenceService.findLegacyFilePaths(after, 1000)).isEmpty()) {
+            for (String path : page) {
+                referenced.add(Paths.get(path).toAbsolutePath().normalize());
+            }
+            after = page.get(page.size() - 1);
+        }
+        Path blobDir = blobStorageService.getBlobDir().toAbsolutePath().normalize();
+        for (Path file : regularFiles(directory, Integer.MAX_VALUE)) {
+            if (file.toAbsolutePath().normalize().startsWith(blobDir)) {
+                // Blob dir configured inside an upload dir; its files are checked against stored_blobs instead
+                continue;
+            }
+            throttle.acquire(1);
+            currentPass.filesScanned.incrementAndGet();
+            if (!referenced.contains(file.toAbsolutePath().normalize()) && olderThanGrace(file)) {
+                deleteOrphan(file, "legacy");
+            }
+        }
+    }
+
+    /**
+     * Compare the next batch of blob rows with the rows that actually reference them
+     */
+    private void reconcileBlobs(IoThrottle throttle) throws InterruptedException {
+        List<StoredBlob> batch = storedBlobRepository.findByIdGreaterThanOrderByIdAsc(lastBlobId, PageRequest.of(0, blobsPerRun));
+        if (batch.isEmpty()) {
+            lastBlobId = 0;
+            return;
+        }
+        LocalDateTime graceCutoff = LocalDateTime.now().minus(Duration.ofMillis(gracePeriodMs));
+        for (StoredBlob blob : batch) {
+            lastBlobId = blob.getId();
+            throttle.acquire(1);
+            currentPass.blobsChecked.incrementAndGet();
+            if (blob.getCreatedAt() != null && blob.getCreatedAt().isAfter(graceCutoff)) {
+                continue;
+            }
+            long references = fileReferenceService.countReferences(blob.getStoragePath());
+            if (references == blob.getRefCount()) {
+                suspects.remove(blob.getId());
+                continue;
+            }
+            if (references > blob.getRefCount()) {
+                raiseRefCount(blob.getId());
+                continue;
+            }
+            Suspect seen = suspects.get(blob.getId());
+            long now = System.currentTimeMillis();
+            if (seen == null || seen.refCount() != blob.getRefCount() || seen.references() != references) {
+                suspects.put(blob.getId(), new Suspect(blob.getRefCount(), references, now));
+            } else if (now - seen.firstSeenMillis() >= gracePeriodMs) {
+                lowerRefCount(blob.getId(), seen);
+            }
+        }
+    }
+
+    private void raiseRefCount(Long blobId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            StoredBlob blob = lockBlob(blobId);
+            if (blob == null) {
+                return;
+            }
+            long references = fileReferenceService.countReferences(blob.getStoragePath());
+            if (references > blob.getRefCount()) {
+                logger.warn("Blob {} has {} references but a count of {}; raising it", blob.getSha256(), references, blob.getRefCount());
+                if (!dryRun) {
+                    blob.setRefCount((int) references);
+                    storedBlobRepository.save(blob);
+                }
+                currentPass.refCountsCorrected.incrementAndGet();
+            }
+        });
+        suspects.remove(blobId);
+    }
+
+    /**
+     * Settle a blob that has stayed over-counted for the grace period: delete it when
+     * nothing references it, otherwise lower its count to the real number
+     */
+    private void lowerRefCount(Long blobId, Suspect seen) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            StoredBlob blob = lockBlob(blobId);
+            if (blob == null) {
+                return;
+            }
+            long references = fileReferenceService.countReferences(blob.getStoragePath());
+            if (blob.getRefCount() != seen.refCount() || references != seen.references()) {
+                // Something changed since it was first seen; the next walk starts over
+                return;
+            }
+            if (references > 0) {
+                logger.info("Blob {} has {} references but a count of {}; lowering it", blob.getSha256(), references, blob.getRefCount());
+                if (!dryRun) {
+                    blob.setRefCount((int) references);
+                    storedBlobRepository.save(blob);
+                }
+                currentPass.refCountsCorrected.incrementAndGet();
+                return;
+            }
+            logger.info("Reclaiming unreferenced blob {} ({} bytes)", blob.getSha256(), blob.getSizeBytes());
+            currentPass.orphanBlobs.incrementAndGet();
+            if (dryRun) {
+                return;
+            }
+            storedBlobRepository.delete(blob);
+            Path file = Paths.get(blob.getStoragePath());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteFile(file, "blob");
+                }
+            });
+        });
+        suspects.remove(blobId);
+    }
+
+    private StoredBlob lockBlob(Long blobId) {
+        StoredBlob blob = storedBlobRepository.findById(blobId).orElse(null);
+        return blob == null ? null : storedBlobRepository.findBySha256ForUpdate(blob.getSha256()).orElse(null);
+    }
+
+    private void deleteOrphan(Path file, String kind) {
+        currentPass.orphanFiles.incrementAndGet();
+        if (dryRun) {
+            logger.info("Would delete orphaned {} file {}", kind, file);
+            return;
+        }
+        deleteFile(file, kind);
+    }
+
+    private void deleteFile(Path file, String kind) {
+        try {
+            long size = Files.exists(file) ? Files.size(file) : 0;
+            if (Files.deleteIfExists(file)) {
+                currentPass.bytesReclaimed.addAndGet(size);
+                appMetrics.recordReclaimed(kind, size);
+                logger.info("Deleted orphaned {} file {} ({} bytes)", kind, file, size);
+            }
+        } catch (IOException e) {
+            logger.error("Error deleting orphaned file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean olderThanGrace(Path file) throws IOException {
+        return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() >= gracePeriodMs;
+    }
+
+    private static List<Path> regularFiles(Path directory, int depth) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, depth)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static boolean samePath(Path a, Path b) {
+        return a != null && b != null && a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize());
+    }
+
+    private static class Stats {
+        final LocalDateTime startedAt = LocalDateTime.now();
+        volatile LocalDateTime completedAt;
+        final AtomicLong filesScanned = new AtomicLong();
+        final AtomicLong unrecognizedFiles = new AtomicLong();
+        final AtomicLong orphanFiles = new AtomicLong();
+        final AtomicLong blobsChecked = new AtomicLong();
+        final AtomicLong orphanBlobs = new AtomicLong();
+        final AtomicLong refCountsCorrected = new AtomicLong();
+        final AtomicLong bytesReclaimed = new AtomicLong();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", startedAt);
+            map.put("completedAt", completedAt);
+            map.put("filesScanned", filesScanned.get());
+            map.put("unrecognizedFiles", unrecognizedFiles.get());
+            map.put("orphanFiles", orphanFiles.get());
+            map.put("blobsChecked", blobsChecked.get());
+            map.put("orphanBlobs", orphanBlobs.get());
+            map.put("refCountsCorrected", refCountsCorrected.get());
+            map.put("bytesReclaimed", bytesReclaimed.get());
+            return map;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.skillforge.service;
 
 import com.skillforge.entity.Assignment;
 import com.skillforge.entity.AssignmentSubmission;
+import com.skillforge.entity.StorageUsage;
 import com.skillforge.entity.User;
 import com.skillforge.exception.ForbiddenAccessException;
 import com.skillforge.exception.InvalidRequestException;
@@ -9,22 +10,29 @@ import com.skillforge.exception.ResourceNotFoundException;
 import com.skillforge.repository.AssignmentRepository;
 import com.skillforge.repository.AssignmentSubmissionRepository;
 import com.skillforge.repository.UserRepository;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class SubmissionService {
@@ -43,10 +51,16 @@ public class SubmissionService {
     private UserRepository userRepository;
 
     @Autowired
-    private AssignmentService assignmentService;
+    private CourseAccessService courseAccessService;
 
-    @Value("${app.assignments.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
 
     /**
      * Submit assignment (Student only)
@@ -55,8 +69,6 @@ public class SubmissionService {
     @PreAuthorize("hasRole('STUDENT')")
     @Transactional
     public AssignmentSubmission submitAssignment(Long assignmentId, MultipartFile file, String studentEmail) throws IOException {
-        logger.info("Submitting assignment ID: {} by student: {}", assignmentId, studentEmail);
-
         // Validate file
         if (file == null || file.isEmpty()) {
             throw new InvalidRequestException("File is required");
@@ -73,8 +85,23 @@ public class SubmissionService {
             throw new InvalidRequestException("Only PDF files are allowed");
         }
 
+        return submitAssignment(assignmentId, file.getInputStream(), file.getSize(), studentEmail);
+    }
+
+    /**
+     * Submit assignment from a raw stream, written to storage in one pass. The size
+     * limit and PDF signature are checked while streaming.
+     *
+     * @param declaredSize Content-Length if known, otherwise -1
+     */
+    @PreAuthorize("hasRole('STUDENT')")
+    @Transactional
+    public AssignmentSubmission submitAssignment(Long assignmentId, InputStream content, long declaredSize,
+                                                 String studentEmail) throws IOException {
+        logger.info("Submitting assignment ID: {} by student: {}", assignmentId, studentEmail);
+
         // Validate file size
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (declaredSize > MAX_FILE_SIZE) {
             throw new InvalidRequestException("File size must not exceed 5MB");
         }
 
@@ -92,7 +119,7 @@ public class SubmissionService {
         }
 
         // ACCESS CHECK: Verify student can access this assignment (must be enrolled)
-        if (!assignmentService.canAccessAssignment(assignmentId, studentEmail)) {
+        if (!courseAccessService.canAccessAssignment(student, assignment)) {
             throw new ForbiddenAccessException("You must be enrolled in this course to submit assignments");
         }
 
@@ -101,28 +128,22 @@ public class SubmissionService {
             throw new InvalidRequestException("You have already submitted this assignment. Only one submission is allowed per assignment.");
         }
 
-        // Create directory for assignment submissions
-        Path assignmentDirPath = Paths.get(uploadDir, assignmentId.toString());
-        if (!Files.exists(assignmentDirPath)) {
-            Files.createDirectories(assignmentDirPath);
-            logger.info("Created directory: {}", assignmentDirPath);
-        }
-
-        // Generate unique filename
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String fileName = student.getId() + "_" + UUID.randomUUID().toString() + fileExtension;
-        Path filePath = assignmentDirPath.resolve(fileName);
+        Long courseId = assignment.getCourse().getId();
+        storageQuotaService.checkQuota(courseId, student.getId(), declaredSize);
 
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        logger.info("File saved to: {}", filePath);
+        // Save file to the blob store
+        BlobStorageService.StoredFile stored = blobStorageService.store(
+                new ValidatingUploadStream(content, UploadType.PDF, MAX_FILE_SIZE, "5MB"), ".pdf");
+        storageQuotaService.charge(StorageUsage.Kind.SUBMISSION, courseId, student.getId(), stored.size());
+        appMetrics.recordUpload("submission", stored.size());
+        logger.info("File saved to: {}{}", stored.storagePath(), stored.deduplicated() ? " (deduplicated)" : "");
 
         // Create submission entity
         AssignmentSubmission submission = new AssignmentSubmission();
         submission.setAssignment(assignment);
         submission.setStudent(student);
-        submission.setFilePath(filePath.toString());
-        submission.setFileSize(file.getSize());
+        submission.setFilePath(stored.storagePath());
+        submission.setFileSize(stored.size());
 
         AssignmentSubmission savedSubmission = submissionRepository.save(submission);
         logger.info("Submission saved to database with ID: {}", savedSubmission.getId());
@@ -159,6 +180,87 @@ public class SubmissionService {
         return submissionRepository.findByAssignmentOrderBySubmittedAtDesc(assignment);
     }
 
+    /**
+     * Submissions of an assignment for a ZIP export, after the same ownership check
+     * as {@link #getSubmissionsByAssignment}
+     */
+    @PreAuthorize("hasAnyRole('INSTRUCTOR', 'ADMIN')")
+    public SubmissionExport getSubmissionsForExport(Long assignmentId, AuthenticatedUser user, boolean ungradedOnly) {
+        Assignment assignment = assignmentRepository.findById(assignmentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Assignment not found with ID: " + assignmentId));
+
+        if (user.getRole() != User.Role.ADMIN && !assignment.getInstructor().getId().equals(user.getId())) {
+            throw new ForbiddenAccessException("You can only export submissions for your own assignments");
+        }
+
+        return new SubmissionExport(assignment.getTitle(), submissionRepository.findForExport(assignmentId, ungradedOnly));
+    }
+
+    public record SubmissionExport(String assignmentTitle, List<AssignmentSubmission> submissions) {
+    }
+
+    /**
+     * Write every submission file into a ZIP on {@code out} as it is read, one
+     * entry per student plus a manifest.csv. Memory use is one copy buffer.
+     */
+    public void writeSubmissionsZip(SubmissionExport export, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // Submissions are PDFs, which are already compressed
+        zip.setLevel(Deflater.NO_COMPRESSION);
+
+        StringBuilder manifest = new StringBuilder("student,email,submittedAt,marksAwarded,file\n");
+        Set<String> usedNames = new HashSet<>();
+        int written = 0;
+        for (AssignmentSubmission submission : export.submissions()) {
+            User student = submission.getStudent();
+            Path file = Paths.get(submission.getFilePath());
+            String fileName = file.getFileName().toString();
+            String extension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+            String entryName = safeName(student.getName()) + "_" + student.getId() + extension;
+            if (!usedNames.add(entryName)) {
+                entryName = safeName(student.getName()) + "_" + student.getId() + "_" + submission.getId() + extension;
+                usedNames.add(entryName);
+            }
+
+            if (Files.isReadable(file)) {
+                ZipEntry entry = new ZipEntry(entryName);
+                entry.setLastModifiedTime(Files.getLastModifiedTime(file));
+                zip.putNextEntry(entry);
+                Files.copy(file, zip);
+                zip.closeEntry();
+                written++;
+            } else {
+                logger.warn("Submission {} file missing: {}", submission.getId(), file);
+                entryName = "MISSING";
+            }
+            manifest.append(csv(student.getName())).append(',')
+                    .append(csv(student.getEmail())).append(',')
+                    .append(submission.getSubmittedAt()).append(',')
+                    .append(submission.getMarksAwarded() != null ? submission.getMarksAwarded() : "").append(',')
+                    .append(csv(entryName)).append('\n');
+        }
+
+        zip.putNextEntry(new ZipEntry("manifest.csv"));
+        zip.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+        logger.info("Exported {} submission(s) for assignment '{}'", written, export.assignmentTitle());
+    }
+
+    private static String safeName(String name) {
+        String cleaned = name == null ? "" : name.trim().replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+        return cleaned.isEmpty() ? "student" : cleaned;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean quote = value.contains(",") || value.contains("\"") || value.contains("\n");
+        return quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
     /**
      * Get student's own submissions
      * Security: Requires STUDENT role
@@ -251,38 +353,6 @@ public class SubmissionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Submission not found with ID: " + submissionId));
     }
 
-    /**
-     * Check if user can access submission
-     */
-    public boolean canAccessSubmission(Long submissionId, String userEmail) {
-        AssignmentSubmission submission = getSubmissionById(submissionId);
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        // Admin can access everything
-        if (user.getRole().equals(User.Role.ADMIN)) {
-            logger.info("Admin {} granted access to submission {}", userEmail, submissionId);
-            return true;
-        }
-
-        // Instructor can access submissions for their assignments
-        if (user.getRole().equals(User.Role.INSTRUCTOR)) {
-            boolean hasAccess = submission.getAssignment().getInstructor().getId().equals(user.getId());
-            logger.info("Instructor {} {} access to submission {}", userEmail, hasAccess ? "granted" : "denied", submissionId);
-            return hasAccess;
-        }
-
-        // Student can access their own submissions
-        if (user.getRole().equals(User.Role.STUDENT)) {
-            boolean hasAccess = submission.getStudent().getId().equals(user.getId());
-            logger.info("Student {} {} access to submission {}", userEmail, hasAccess ? "granted" : "denied", submissionId);
-            return hasAccess;
-        }
-
-        logger.warn("User {} with role {} denied access to submission {}", userEmail, user.getRole(), submissionId);
-        return false;
-    }
-
     /**
      * Delete a submission (Admin only, or instructor can delete before grading)
      * Security: Requires ADMIN role
@@ -301,17 +371,22 @@ public class SubmissionService {
             throw new ForbiddenAccessException("Only admins can delete submissions");
         }
 
-        // Delete physical file
-        try {
-            Path filePath = Paths.get(submission.getFilePath());
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                logger.info("Physical file deleted: {}", filePath);
+        // Release the blob; files from before the blob store are deleted directly
+        if (!blobStorageService.release(submission.getFilePath())) {
+            try {
+                Path filePath = Paths.get(submission.getFilePath());
+                if (Files.exists(filePath)) {
+                    Files.delete(filePath);
+                    logger.info("Physical file deleted: {}", filePath);
+                }
+            } catch (IOException e) {
+                logger.error("Error deleting physical file: {}", e.getMessage());
             }
-        } catch (IOException e) {
-            logger.error("Error deleting physical file: {}", e.getMessage());
         }
 
+        storageQuotaService.credit(StorageUsage.Kind.SUBMISSION, submission.getAssignment().getCourse().getId(),
+                submission.getStudent().getId(), submission.getFileSize());
+
         // Delete from database
         submissionRepository.delete(submission);
         logger.info("Submission deleted from database");
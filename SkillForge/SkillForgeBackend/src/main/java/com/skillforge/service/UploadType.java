@@ -0,0 +1,53 @@
+package com.skillforge.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * File kinds accepted by the upload endpoints, recognised by their leading
+ * bytes rather than the client's Content-Type or file name
+ */
+public enum UploadType {
+    PDF("PDF") {
+        @Override
+        boolean matches(byte[] header, int length) {
+            return startsWith(header, length, 0, "%PDF-".getBytes(StandardCharsets.US_ASCII));
+        }
+    },
+    VIDEO("video") {
+        @Override
+        boolean matches(byte[] header, int length) {
+            return startsWith(header, length, 4, "ftyp".getBytes(StandardCharsets.US_ASCII))        // MP4, MOV, M4V
+                    || startsWith(header, length, 0, new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3}) // WebM, MKV
+                    || startsWith(header, length, 0, "OggS".getBytes(StandardCharsets.US_ASCII))
+                    || (startsWith(header, length, 0, "RIFF".getBytes(StandardCharsets.US_ASCII))
+                        && startsWith(header, length, 8, "AVI ".getBytes(StandardCharsets.US_ASCII)));
+        }
+    };
+
+    /** Bytes needed to recognise any of the formats */
+    static final int HEADER_LENGTH = 12;
+
+    private final String label;
+
+    UploadType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    abstract boolean matches(byte[] header, int length);
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package com.skillforge.service;
+
+import com.skillforge.exception.InvalidRequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Wraps an upload body and rejects it as soon as it is known to be invalid:
+ * after the first {@value UploadType#HEADER_LENGTH} bytes if the magic bytes do
+ * not match, or as soon as more than {@code maxBytes} have been read. The store
+ * reading from it stops there, so a bad upload costs a few KB of I/O.
+ */
+public class ValidatingUploadStream extends FilterInputStream {
+
+    private final UploadType type;
+    private final long maxBytes;
+    private final String maxLabel;
+    private final byte[] header = new byte[UploadType.HEADER_LENGTH];
+    private int headerLength;
+    private boolean headerChecked;
+    private long count;
+
+    public ValidatingUploadStream(InputStream in, UploadType type, long maxBytes, String maxLabel) {
+        super(in);
+        this.type = type;
+        this.maxBytes = maxBytes;
+        this.maxLabel = maxLabel;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+            onEnd();
+        } else {
+            onBytes(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+            onEnd();
+        } else {
+            onBytes(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("skip is not supported on uploads");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void onBytes(byte[] b, int off, int n) {
+        count += n;
+        if (count > maxBytes) {
+            throw new InvalidRequestException("File size must not exceed " + maxLabel);
+        }
+        if (!headerChecked) {
+            int take = Math.min(n, header.length - headerLength);
+            System.arraycopy(b, off, header, headerLength, take);
+            headerLength += take;
+            if (headerLength == header.length) {
+                checkHeader();
+            }
+        }
+    }
+
+    private void onEnd() {
+        if (count == 0) {
+            throw new InvalidRequestException("File is required");
+        }
+        if (!headerChecked) {
+            checkHeader();
+        }
+    }
+
+    private void checkHeader() {
+        headerChecked = true;
+        if (!type.matches(header, headerLength)) {
+            throw new InvalidRequestException("File content is not a valid " + type.getLabel() + " file");
+        }
+    }
+}
@@ -2,21 +2,28 @@ package com.skillforge.service;
 
 import com.skillforge.dto.VideoRequest;
 import com.skillforge.entity.Course;
+import com.skillforge.entity.StorageUsage;
 import com.skillforge.entity.Video;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ResourceNotFoundException;
 import com.skillforge.repository.CourseRepository;
+import com.skillforge.repository.UserRepository;
 import com.skillforge.repository.VideoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class VideoService {
@@ -27,10 +34,44 @@ public class VideoService {
     @Autowired
     private CourseRepository courseRepository;
 
-    @Value("${app.video.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.video.max-upload-bytes:524288000}")
+    private long maxUploadBytes;
+
+    @Value("${app.video.max-streams-per-user:4}")
+    private int maxStreamsPerUser;
+
+    private final Map<Long, Integer> activeStreams = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("video.streams.active", activeStreams,
+                        streams -> streams.values().stream().mapToInt(Integer::intValue).sum())
+                .description("Video stream requests currently being served")
+                .register(meterRegistry);
+    }
 
-    public Video uploadVideo(Long courseId, VideoRequest request, MultipartFile file) throws IOException {
+    /**
+     * @param uploaderId user charged for the upload's storage
+     */
+    public Video uploadVideo(Long courseId, VideoRequest request, MultipartFile file, Long uploaderId) throws IOException {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
 
@@ -40,15 +81,7 @@ public class VideoService {
         video.setCourse(course);
 
         if (file != null && !file.isEmpty()) {
-            video.setVideoType(Video.VideoType.UPLOADED);
-            String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            video.setFilePath(filePath.toString());
+            return storeVideoFile(video, file.getInputStream(), file.getSize(), file.getOriginalFilename(), uploaderId);
         } else if (request.getExternalUrl() != null && !request.getExternalUrl().isEmpty()) {
             video.setVideoType(Video.VideoType.valueOf(request.getVideoType()));
             video.setExternalUrl(request.getExternalUrl());
@@ -59,6 +92,62 @@ public class VideoService {
         return videoRepository.save(video);
     }
 
+    /**
+     * Upload a video from a raw stream (e.g. the request body) in a single pass
+     *
+     * @param declaredSize Content-Length if known, otherwise -1
+     * @param filename     original file name, used only for its extension
+     * @param uploaderId   user charged for the upload's storage
+     */
+    public Video uploadVideo(Long courseId, VideoRequest request, InputStream content, long declaredSize,
+                             String filename, Long uploaderId) throws IOException {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        Video video = new Video();
+        video.setTitle(request.getTitle());
+        video.setDescription(request.getDescription());
+        video.setCourse(course);
+        return storeVideoFile(video, content, declaredSize, filename, uploaderId);
+    }
+
+    /**
+     * Read the body into the blob store with no connection held (up to max-upload-bytes
+     * from a slow client), then charge the quota and insert the row in one short
+     * transaction; if that fails the blob reference is given back
+     */
+    private Video storeVideoFile(Video video, InputStream content, long declaredSize, String filename,
+                                 Long uploaderId) throws IOException {
+        if (declaredSize > maxUploadBytes) {
+            throw new InvalidRequestException("File size must not exceed " + maxUploadBytes / (1024 * 1024) + "MB");
+        }
+        Long courseId = video.getCourse().getId();
+        storageQuotaService.checkQuota(courseId, uploaderId, declaredSize);
+        String extension = filename != null && filename.contains(".") ? filename.substring(filename.lastIndexOf(".")) : "";
+        // The same lecture uploaded to several courses is stored once
+        BlobStorageService.StoredFile stored = blobStorageService.store(
+                new ValidatingUploadStream(content, UploadType.VIDEO, maxUploadBytes, maxUploadBytes / (1024 * 1024) + "MB"),
+                extension);
+
+        video.setVideoType(Video.VideoType.UPLOADED);
+        video.setFilePath(stored.storagePath());
+        video.setFileSize(stored.size());
+
+        Video saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                video.setUploadedBy(uploaderId != null ? userRepository.getReferenceById(uploaderId) : null);
+                storageQuotaService.charge(StorageUsage.Kind.VIDEO, courseId, uploaderId, stored.size());
+                return videoRepository.save(video);
+            });
+        } catch (RuntimeException e) {
+            blobStorageService.release(stored.storagePath());
+            throw e;
+        }
+        appMetrics.recordUpload("video", stored.size());
+        return saved;
+    }
+
     public Video addVideoLink(Long courseId, VideoRequest request) {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
@@ -79,8 +168,46 @@ public class VideoService {
         return videoRepository.findByCourse(course);
     }
 
+    /**
+     * An uploaded video of the course, ready to stream
+     */
+    public Video getUploadedVideo(Long courseId, Long videoId) {
+        Video video = videoRepository.findById(videoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Video not found with ID: " + videoId));
+        if (!video.getCourse().getId().equals(courseId) || video.getVideoType() != Video.VideoType.UPLOADED
+                || video.getFilePath() == null) {
+            throw new ResourceNotFoundException("Video not found with ID: " + videoId);
+        }
+        return video;
+    }
+
+    /**
+     * Claim one of the user's concurrent stream slots; false when all are in use.
+     * Every successful call must be paired with {@link #releaseStream(Long)}.
+     */
+    public boolean tryAcquireStream(Long userId) {
+        Integer count = activeStreams.merge(userId, 1, Integer::sum);
+        if (count > maxStreamsPerUser) {
+            releaseStream(userId);
+            return false;
+        }
+        return true;
+    }
+
+    public void releaseStream(Long userId) {
+        activeStreams.computeIfPresent(userId, (id, count) -> count <= 1 ? null : count - 1);
+    }
+
+    @Transactional
     public void deleteVideo(Long videoId) {
-        videoRepository.deleteById(videoId);
+        videoRepository.findById(videoId).ifPresent(video -> {
+            if (video.getFilePath() != null) {
+                blobStorageService.release(video.getFilePath());
+                storageQuotaService.credit(StorageUsage.Kind.VIDEO, video.getCourse().getId(),
+                        video.getUploadedBy() != null ? video.getUploadedBy().getId() : null, video.getFileSize());
+            }
+            videoRepository.delete(video);
+        });
     }
 }
 
@@ -0,0 +1,319 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.Course;
+import com.skillforge.entity.StorageUsage;
+import com.skillforge.entity.Video;
+import com.skillforge.entity.VideoUploadSession;
+import com.skillforge.exception.ForbiddenAccessException;
+import com.skillforge.exception.InvalidRequestException;
+import com.skillforge.exception.ResourceNotFoundException;
+import com.skillforge.repository.CourseRepository;
+import com.skillforge.repository.UserRepository;
+import com.skillforge.repository.VideoRepository;
+import com.skillforge.repository.VideoUploadSessionRepository;
+import com.skillforge.security.AuthenticatedUser;
+import com.skillforge.security.CourseAccessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Resumable video uploads: create a session, PUT fixed-size chunks by index in any
+ * order (each written at its offset in a single part file), query which chunks are
+ * missing, then complete. Completing hashes the part file in place and renames it
+ * into the blob store, so the video is never copied. Abandoned sessions expire.
+ */
+@Service
+public class VideoUploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoUploadSessionService.class);
+
+    /** receivedChunks is VARBINARY(1024) */
+    private static final int MAX_CHUNKS = 1024 * 8;
+
+    @Autowired
+    private VideoUploadSessionRepository sessionRepository;
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseAccessService courseAccessService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.video.max-upload-bytes:524288000}")
+    private long maxUploadBytes;
+
+    @Value("${app.video.upload-session.chunk-bytes:8388608}")
+    private int chunkBytes;
+
+    @Value("${app.video.upload-session.ttl-ms:86400000}")
+    private long ttlMs;
+
+    public VideoUploadSession createSession(AuthenticatedUser user, Long courseId, String title, String description,
+                                            String fileName, long totalSize) throws IOException {
+        requireCourseOwner(user, courseId);
+        if (title == null || title.trim().isEmpty()) {
+            throw new InvalidRequestException("Video title is required");
+        }
+        if (totalSize <= 0) {
+            throw new InvalidRequestException("totalSize is required");
+        }
+        if (totalSize > maxUploadBytes) {
+            throw new InvalidRequestException("File size must not exceed " + maxUploadBytes / (1024 * 1024) + "MB");
+        }
+        if (chunkCount(totalSize, chunkBytes) > MAX_CHUNKS) {
+            throw new InvalidRequestException("File is too large for the configured chunk size");
+        }
+        storageQuotaService.checkQuota(courseId, user.getId(), totalSize);
+
+        VideoUploadSession session = new VideoUploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setCourseId(courseId);
+        session.setUserId(user.getId());
+        session.setTitle(title);
+        session.setDescription(description);
+        session.setFileName(fileName);
+        session.setTotalSize(totalSize);
+        session.setChunkSize(chunkBytes);
+        session.setReceivedChunks(new byte[0]);
+        session.setExpiresAt(LocalDateTime.now().plusNanos(ttlMs * 1_000_000));
+
+        Files.createDirectories(partFile(session.getId()).getParent());
+        Files.deleteIfExists(partFile(session.getId()));
+        Files.createFile(partFile(session.getId()));
+
+        logger.info("Video upload session {} created for course {} ({} bytes)", session.getId(), courseId, totalSize);
+        return sessionRepository.save(session);
+    }
+
+    public VideoUploadSession getSession(AuthenticatedUser user, Long courseId, String uploadId) {
+        VideoUploadSession session = sessionRepository.findById(uploadId)
+                .filter(s -> s.getExpiresAt().isAfter(LocalDateTime.now()))
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + uploadId));
+        if (!session.getCourseId().equals(courseId) || !session.getUserId().equals(user.getId())) {
+            throw new ResourceNotFoundException("Upload session not found: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * Write chunk {@code index} from {@code body} at its offset in the part file.
+     * Re-sending a chunk overwrites it, so clients can simply retry.
+     *
+     * @param contentLength the request's Content-Length, or -1
+     */
+    public VideoUploadSession writeChunk(AuthenticatedUser user, Long courseId, String uploadId, int index,
+                                         InputStream body, long contentLength) throws IOException {
+        VideoUploadSession session = getSession(user, courseId, uploadId);
+        int chunks = chunkCount(session.getTotalSize(), session.getChunkSize());
+        if (index < 0 || index >= chunks) {
+            throw new InvalidRequestException("Chunk index must be between 0 and " + (chunks - 1));
+        }
+        long offset = (long) index * session.getChunkSize();
+        long expected = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new InvalidRequestException("Chunk " + index + " must be exactly " + expected + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(body);
+            long written = 0;
+            while (written < expected) {
+                long n = channel.transferFrom(source, offset + written, expected - written);
+                if (n <= 0) {
+                    break;
+                }
+                written += n;
+            }
+            if (written != expected || source.read(ByteBuffer.allocate(1)) >= 0) {
+                throw new InvalidRequestException("Chunk " + index + " must be exactly " + expected + " bytes");
+            }
+        }
+
+        // Chunks may arrive in parallel; lock the row so no bit is lost
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            VideoUploadSession locked = sessionRepository.findByIdForUpdate(uploadId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + uploadId));
+            BitSet received = BitSet.valueOf(locked.getReceivedChunks());
+            received.set(index);
+            locked.setReceivedChunks(received.toByteArray());
+            locked.setExpiresAt(LocalDateTime.now().plusNanos(ttlMs * 1_000_000));
+            return sessionRepository.save(locked);
+        });
+    }
+
+    /**
+     * Turn a fully received session into a Video. The row lock keeps a second
+     * complete call from racing this one.
+     */
+    @Transactional
+    public Video complete(AuthenticatedUser user, Long courseId, String uploadId) throws IOException {
+        getSession(user, courseId, uploadId);
+        VideoUploadSession session = sessionRepository.findByIdForUpdate(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + uploadId));
+
+        List<Integer> missing = missingChunks(session);
+        if (!missing.isEmpty()) {
+            throw new InvalidRequestException("Upload is incomplete; " + missing.size() + " chunk(s) missing");
+        }
+
+        Path part = partFile(uploadId);
+        byte[] header = new byte[UploadType.HEADER_LENGTH];
+        int headerLength;
+        try (InputStream in = Files.newInputStream(part)) {
+            headerLength = in.readNBytes(header, 0, header.length);
+        }
+        if (!UploadType.VIDEO.matches(header, headerLength)) {
+            throw new InvalidRequestException("File content is not a valid video file");
+        }
+
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course not found with ID: " + courseId));
+        String fileName = session.getFileName();
+        String extension = fileName != null && fileName.contains(".") ? fileName.substring(fileName.lastIndexOf(".")) : "";
+        // Charged before adopt() consumes the part file, so a full quota leaves the session retryable
+        storageQuotaService.charge(StorageUsage.Kind.VIDEO, courseId, session.getUserId(), Files.size(part));
+        BlobStorageService.StoredFile stored = blobStorageService.adopt(part, extension);
+        discardOnRollback(uploadId, stored);
+        appMetrics.recordUpload("video", stored.size());
+
+        Video video = new Video();
+        video.setTitle(session.getTitle());
+        video.setDescription(session.getDescription());
+        video.setCourse(course);
+        video.setVideoType(Video.VideoType.UPLOADED);
+        video.setFilePath(stored.storagePath());
+        video.setFileSize(stored.size());
+        video.setUploadedBy(userRepository.getReferenceById(session.getUserId()));
+        Video saved = videoRepository.save(video);
+
+        sessionRepository.delete(session);
+        logger.info("Video upload session {} completed as video {}", uploadId, saved.getId());
+        return saved;
+    }
+
+    /**
+     * adopt() commits the blob reference on its own and the part file is gone, so if
+     * completing fails later the reference is released and the session dropped;
+     * the client then gets a 404 and starts over instead of retrying into a 500
+     */
+    private void discardOnRollback(String uploadId, BlobStorageService.StoredFile stored) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                TransactionTemplate tx = new TransactionTemplate(transactionManager);
+                tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                try {
+                    tx.executeWithoutResult(s -> {
+                        blobStorageService.release(stored.storagePath());
+                        sessionRepository.deleteById(uploadId);
+                    });
+                    logger.warn("Video upload session {} failed to complete; discarded", uploadId);
+                } catch (RuntimeException e) {
+                    logger.error("Could not discard failed upload session {}: {}", uploadId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    public void abort(AuthenticatedUser user, Long courseId, String uploadId) throws IOException {
+        VideoUploadSession session = getSession(user, courseId, uploadId);
+        sessionRepository.delete(session);
+        Files.deleteIfExists(partFile(uploadId));
+    }
+
+    public List<Integer> missingChunks(VideoUploadSession session) {
+        BitSet received = BitSet.valueOf(session.getReceivedChunks());
+        int chunks = chunkCount(session.getTotalSize(), session.getChunkSize());
+        return IntStream.range(0, chunks).filter(i -> !received.get(i)).boxed().toList();
+    }
+
+    public long receivedBytes(VideoUploadSession session) {
+        BitSet received = BitSet.valueOf(session.getReceivedChunks());
+        int chunks = chunkCount(session.getTotalSize(), session.getChunkSize());
+        long bytes = 0;
+        for (int i = received.nextSetBit(0); i >= 0 && i < chunks; i = received.nextSetBit(i + 1)) {
+            bytes += Math.min(session.getChunkSize(), session.getTotalSize() - (long) i * session.getChunkSize());
+        }
+        return bytes;
+    }
+
+    public static int chunkCount(long totalSize, int chunkSize) {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Drop sessions that have not received a chunk within the TTL, with their part files
+     */
+    @Scheduled(fixedDelayString = "${app.video.upload-session.sweep-interval-ms:900000}")
+    public void sweepExpired() {
+        List<VideoUploadSession> expired = sessionRepository.findByExpiresAtBefore(LocalDateTime.now());
+        for (VideoUploadSession session : expired) {
+            try {
+                Files.deleteIfExists(partFile(session.getId()));
+                sessionRepository.delete(session);
+            } catch (IOException e) {
+                logger.error("Error deleting expired upload {}: {}", session.getId(), e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            logger.info("Removed {} expired video upload session(s)", expired.size());
+        }
+    }
+
+    private void requireCourseOwner(AuthenticatedUser user, Long courseId) {
+        CourseAccessService.Access access = courseAccessService.courseAccess(user, courseId);
+        if (access != CourseAccessService.Access.OWNER && access != CourseAccessService.Access.ADMIN) {
+            throw new ForbiddenAccessException("You can only upload videos to your own courses");
+        }
+    }
+
+    private Path partFile(String uploadId) {
+        return blobStorageService.getBlobDir().resolve("sessions").resolve(uploadId + ".part");
+    }
+}
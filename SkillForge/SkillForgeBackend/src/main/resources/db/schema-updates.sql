@@ -0,0 +1,158 @@
+-- =====================================================================
+-- Schema changes for tables added after the initial skillforge_db setup.
+-- spring.jpa.hibernate.ddl-auto=validate, so apply these to MySQL before
+-- starting a build that contains the matching entities.
+-- =====================================================================
+
+-- AI generation job queue (AiGenerationJob)
+CREATE TABLE IF NOT EXISTS ai_generation_jobs (
+    id                  BIGINT AUTO_INCREMENT PRIMARY KEY,
+    instructor_id       BIGINT       NOT NULL,
+    exam_id             BIGINT       NULL,
+    course_name         VARCHAR(255) NULL,
+    topic               VARCHAR(255) NOT NULL,
+    difficulty          VARCHAR(20)  NULL,
+    number_of_questions INT          NOT NULL,
+    status              VARCHAR(20)  NOT NULL,
+    attempts            INT          NOT NULL DEFAULT 0,
+    result_json         LONGTEXT     NULL,
+    error_message       VARCHAR(1000) NULL,
+    created_at          DATETIME(6)  NOT NULL,
+    started_at          DATETIME(6)  NULL,
+    completed_at        DATETIME(6)  NULL,
+    CONSTRAINT fk_ai_job_instructor FOREIGN KEY (instructor_id) REFERENCES users (id) ON DELETE CASCADE,
+    INDEX idx_ai_job_status_created (status, created_at),
+    INDEX idx_ai_job_instructor (instructor_id)
+);
+
+-- Pre-generated AI question pool (PooledQuestion, QuestionPoolTopic)
+CREATE TABLE IF NOT EXISTS ai_question_pool (
+    id             BIGINT AUTO_INCREMENT PRIMARY KEY,
+    course_key     VARCHAR(255) NOT NULL,
+    topic_key      VARCHAR(255) NOT NULL,
+    difficulty     VARCHAR(20)  NOT NULL,
+    question_text  TEXT         NOT NULL,
+    option_a       VARCHAR(500) NULL,
+    option_b       VARCHAR(500) NULL,
+    option_c       VARCHAR(500) NULL,
+    option_d       VARCHAR(500) NULL,
+    correct_option VARCHAR(1)   NOT NULL,
+    text_hash      VARCHAR(64)  NOT NULL,
+    created_at     DATETIME(6)  NULL,
+    CONSTRAINT uq_pool_key_text UNIQUE (course_key, topic_key, difficulty, text_hash),
+    INDEX idx_pool_key (course_key, topic_key, difficulty)
+);
+
+CREATE TABLE IF NOT EXISTS ai_question_pool_topics (
+    id                BIGINT AUTO_INCREMENT PRIMARY KEY,
+    course_key        VARCHAR(255) NOT NULL,
+    topic_key         VARCHAR(255) NOT NULL,
+    difficulty        VARCHAR(20)  NOT NULL,
+    course_name       VARCHAR(255) NULL,
+    topic             VARCHAR(255) NOT NULL,
+    request_count     BIGINT       NOT NULL DEFAULT 0,
+    last_requested_at DATETIME(6)  NULL,
+    last_refilled_at  DATETIME(6)  NULL,
+    CONSTRAINT uq_pool_topic_key UNIQUE (course_key, topic_key, difficulty)
+);
+
+-- Rotating refresh tokens (RefreshToken); only the SHA-256 of each token is stored
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id     BIGINT      NOT NULL,
+    token_hash  VARCHAR(64) NOT NULL,
+    family_id   VARCHAR(36) NOT NULL,
+    expires_at  DATETIME(6) NOT NULL,
+    revoked_at  DATETIME(6) NULL,
+    created_at  DATETIME(6) NULL,
+    CONSTRAINT uq_refresh_token_hash UNIQUE (token_hash),
+    INDEX idx_refresh_token_family (family_id),
+    INDEX idx_refresh_token_user (user_id),
+    CONSTRAINT fk_refresh_token_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Access-token revocations mirrored in memory by every node (TokenRevocation)
+CREATE TABLE IF NOT EXISTS token_revocations (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    jti           VARCHAR(36)  NULL,
+    subject       VARCHAR(255) NULL,
+    issued_before BIGINT       NULL,
+    expires_at    DATETIME(6)  NOT NULL,
+    created_at    DATETIME(6)  NULL,
+    INDEX idx_token_revocation_expires (expires_at)
+);
+
+-- SHA-256 of each course resource file, served as a strong ETag; older rows are filled on first download
+ALTER TABLE course_resources ADD COLUMN content_hash VARCHAR(64) NULL;
+
+-- Content-addressed upload store (StoredBlob); resource, video and submission file_path point at storage_path
+CREATE TABLE IF NOT EXISTS stored_blobs (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    sha256       VARCHAR(64)  NOT NULL,
+    size_bytes   BIGINT       NOT NULL,
+    storage_path VARCHAR(500) NOT NULL,
+    ref_count    INT          NOT NULL,
+    created_at   DATETIME(6)  NULL,
+    CONSTRAINT uq_stored_blob_sha256 UNIQUE (sha256),
+    CONSTRAINT uq_stored_blob_path UNIQUE (storage_path)
+);
+
+-- Resumable video uploads in progress (VideoUploadSession); chunks land in uploads/blobs/sessions/<id>.part
+CREATE TABLE IF NOT EXISTS video_upload_sessions (
+    id              VARCHAR(36)     NOT NULL PRIMARY KEY,
+    course_id       BIGINT          NOT NULL,
+    user_id         BIGINT          NOT NULL,
+    title           VARCHAR(255)    NOT NULL,
+    description     TEXT            NULL,
+    file_name       VARCHAR(255)    NULL,
+    total_size      BIGINT          NOT NULL,
+    chunk_size      INT             NOT NULL,
+    received_chunks VARBINARY(1024) NULL,
+    expires_at      DATETIME(6)     NOT NULL,
+    created_at      DATETIME(6)     NULL,
+    INDEX idx_video_upload_expires (expires_at)
+);
+
+-- Uploaded video size and uploader, for storage accounting (NULL on rows from before)
+ALTER TABLE videos ADD COLUMN file_size BIGINT NULL;
+ALTER TABLE videos ADD COLUMN uploaded_by BIGINT NULL;
+ALTER TABLE videos ADD CONSTRAINT fk_videos_uploaded_by FOREIGN KEY (uploaded_by) REFERENCES users (id) ON DELETE SET NULL;
+
+-- Running storage totals per platform (scope_id 0), course and uploading user (StorageUsage)
+CREATE TABLE IF NOT EXISTS storage_usage (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    scope            VARCHAR(10) NOT NULL,
+    scope_id         BIGINT      NOT NULL,
+    resource_bytes   BIGINT      NOT NULL DEFAULT 0,
+    submission_bytes BIGINT      NOT NULL DEFAULT 0,
+    video_bytes      BIGINT      NOT NULL DEFAULT 0,
+    file_count       BIGINT      NOT NULL DEFAULT 0,
+    updated_at       DATETIME(6) NULL,
+    CONSTRAINT uq_storage_usage_scope UNIQUE (scope, scope_id)
+);
+
+-- Search indexing of course resource PDFs (CourseResource.textStatus; NULL = not yet indexed)
+ALTER TABLE course_resources ADD COLUMN text_status VARCHAR(20) NULL;
+ALTER TABLE course_resources ADD COLUMN text_page_count INT NULL;
+ALTER TABLE course_resources ADD COLUMN text_updated_at DATETIME(6) NULL;
+CREATE INDEX idx_course_resources_text_status ON course_resources (text_status);
+
+-- Extracted text per PDF page (ResourcePageText), searched through the FULLTEXT index
+CREATE TABLE IF NOT EXISTS resource_page_text (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    resource_id BIGINT     NOT NULL,
+    course_id   BIGINT     NOT NULL,
+    page_number INT        NOT NULL,
+    content     MEDIUMTEXT NOT NULL,
+    INDEX idx_resource_page_text_resource (resource_id, page_number),
+    INDEX idx_resource_page_text_course (course_id),
+    FULLTEXT INDEX ft_resource_page_text_content (content),
+    CONSTRAINT fk_resource_page_text_resource FOREIGN KEY (resource_id) REFERENCES course_resources (id) ON DELETE CASCADE
+);
+
+-- Replication heartbeat (ReplicaLagMonitor): stamped on the primary, read back on the read replica
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id      INT         NOT NULL PRIMARY KEY,
+    beat_at DATETIME(6) NOT NULL
+);
+INSERT IGNORE INTO replication_heartbeat (id, beat_at) VALUES (1, NOW(6));
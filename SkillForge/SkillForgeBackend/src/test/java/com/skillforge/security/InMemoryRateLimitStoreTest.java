@@ -0,0 +1,88 @@
+package com.skillforge.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRateLimitStoreTest {
+
+    private final InMemoryRateLimitStore store = new InMemoryRateLimitStore();
+
+    private static RateLimitPolicy policy(String name, int limit, Duration period) {
+        return new RateLimitPolicy(name, request -> true, RateLimitPolicy.KeyType.IP, limit, period);
+    }
+
+    @Test
+    void allowsBurstOfLimitThenRejects() {
+        RateLimitPolicy login = policy("login", 5, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, store.tryConsume("10.0.0.1", login), "request " + (i + 1));
+        }
+        long wait = store.tryConsume("10.0.0.1", login);
+
+        assertTrue(wait > 0, "sixth request should be rejected");
+        assertTrue(wait <= login.emissionIntervalNanos(), "retry should be allowed within one emission interval");
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpBudget() {
+        RateLimitPolicy login = policy("login", 1, Duration.ofMinutes(1));
+        store.tryConsume("10.0.0.1", login);
+
+        long first = store.tryConsume("10.0.0.1", login);
+        long second = store.tryConsume("10.0.0.1", login);
+
+        assertTrue(first > 0);
+        assertTrue(second > 0 && second <= first, "a rejection must not push the next allowed request back");
+    }
+
+    @Test
+    void keysAndPoliciesHaveSeparateBudgets() {
+        RateLimitPolicy login = policy("login", 1, Duration.ofMinutes(1));
+        RateLimitPolicy api = policy("api", 1, Duration.ofMinutes(1));
+
+        assertEquals(0, store.tryConsume("10.0.0.1", login));
+        assertEquals(0, store.tryConsume("10.0.0.2", login));
+        assertEquals(0, store.tryConsume("10.0.0.1", api));
+        assertTrue(store.tryConsume("10.0.0.1", login) > 0);
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void refillsAtSustainedRate() throws InterruptedException {
+        RateLimitPolicy fast = policy("fast", 2, Duration.ofMillis(100));
+        store.tryConsume("client", fast);
+        store.tryConsume("client", fast);
+        assertTrue(store.tryConsume("client", fast) > 0);
+
+        Thread.sleep(60);
+
+        assertEquals(0, store.tryConsume("client", fast), "one token refills every 50 ms");
+    }
+
+    @Test
+    void evictIdleDropsOnlyRefilledBuckets() throws InterruptedException {
+        RateLimitPolicy shortPeriod = policy("short", 1, Duration.ofMillis(10));
+        RateLimitPolicy longPeriod = policy("long", 1, Duration.ofMinutes(1));
+        store.tryConsume("client", shortPeriod);
+        store.tryConsume("client", longPeriod);
+
+        Thread.sleep(30);
+        store.evictIdle();
+
+        assertEquals(1, store.size());
+        assertTrue(store.tryConsume("client", longPeriod) > 0, "the busy bucket keeps its state");
+    }
+
+    @Test
+    void policyRejectsNonPositiveLimitOrPeriod() {
+        assertThrows(IllegalArgumentException.class, () -> policy("zero", 0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> policy("none", 1, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> policy("negative", 1, Duration.ofSeconds(-1)));
+    }
+}
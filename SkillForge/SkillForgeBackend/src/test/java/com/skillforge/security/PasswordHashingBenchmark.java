@@ -0,0 +1,77 @@
+package com.skillforge.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures BCrypt login verifications per second, per core, for a work factor.
+ * Use it to size app.security.bcrypt.threads and pick app.security.bcrypt.strength
+ * on the production hardware:
+ *
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.skillforge.security.PasswordHashingBenchmark \
+ *     -Dexec.args="10 5"
+ * </pre>
+ *
+ * Arguments: BCrypt strength (default 10) and seconds per run (default 5).
+ * Runs with 1, 2, 4 ... threads up to the number of cores.
+ */
+public final class PasswordHashingBenchmark {
+
+    private PasswordHashingBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int strength = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode("benchmark-password");
+        // Warm up the JIT before measuring
+        for (int i = 0; i < 3; i++) {
+            encoder.matches("benchmark-password", hash);
+        }
+
+        System.out.printf("BCrypt strength %d, %d cores, %d s per run%n", strength, cores, seconds);
+        System.out.printf("%8s %14s %16s %14s%n", "threads", "logins/s", "logins/s/thread", "avg ms");
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            threadCounts.add(t);
+        }
+        threadCounts.add(cores);
+
+        for (int threads : threadCounts) {
+            LongAdder completed = new LongAdder();
+            AtomicBoolean running = new AtomicBoolean(true);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(() -> {
+                    while (running.get()) {
+                        encoder.matches("benchmark-password", hash);
+                        completed.increment();
+                    }
+                    done.countDown();
+                });
+                worker.setDaemon(true);
+                worker.start();
+            }
+            long start = System.nanoTime();
+            Thread.sleep(seconds * 1000L);
+            running.set(false);
+            done.await();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            double perSecond = completed.sum() / elapsed;
+            System.out.printf("%8d %14.1f %16.1f %14.1f%n",
+                    threads, perSecond, perSecond / threads, 1000.0 * threads / perSecond);
+        }
+    }
+}
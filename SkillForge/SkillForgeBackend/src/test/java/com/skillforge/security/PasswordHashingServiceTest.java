@@ -0,0 +1,149 @@
+package com.skillforge.security;
+
+import com.skillforge.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingEncoder encoder = new BlockingEncoder();
+    private PasswordHashingService service;
+
+    /**
+     * Encoder whose calls wait for {@link #release} once it is armed, so a test can
+     * keep the pool's workers busy
+     */
+    private static class BlockingEncoder implements PasswordEncoder {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean blocking;
+        volatile String lastThread;
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return encodedPassword.equals("hashed:" + rawPassword);
+        }
+
+        private void await() {
+            lastThread = Thread.currentThread().getName();
+            if (!blocking) {
+                return;
+            }
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private PasswordHashingService start(int threads, int queueCapacity, long maxWaitMs) {
+        service = new PasswordHashingService();
+        ReflectionTestUtils.setField(service, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "maxWaitMs", maxWaitMs);
+        ReflectionTestUtils.setField(service, "strength", 10);
+        service.init();
+        return service;
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.release.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void hashesOnThePoolAndReturnsTheResult() {
+        start(1, 10, 5000);
+
+        assertEquals("hashed:secret", service.encode("secret"));
+        assertTrue(service.matches("secret", "hashed:secret"));
+        assertFalse(service.matches("wrong", "hashed:secret"));
+        assertTrue(encoder.lastThread.startsWith("bcrypt-"), "ran on " + encoder.lastThread);
+    }
+
+    @Test
+    void rejectsWithServiceBusyWhenPoolAndQueueAreFull() throws Exception {
+        start(1, 1, 5000);
+        encoder.blocking = true;
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> service.matches("a", "hashed:a"));
+        assertTrue(encoder.started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> service.matches("b", "hashed:b"));
+        waitForQueueDepth(1);
+
+        ServiceBusyException busy = assertThrows(ServiceBusyException.class, () -> service.matches("c", "hashed:c"));
+        assertEquals(5, busy.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("auth.bcrypt.rejected").counter().count());
+
+        encoder.release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS), "the queued request still completes");
+    }
+
+    @Test
+    void rejectsWithServiceBusyAfterMaxWait() throws Exception {
+        start(1, 10, 100);
+        encoder.blocking = true;
+        CompletableFuture.runAsync(() -> {
+            try {
+                service.encode("first");
+            } catch (ServiceBusyException ignored) {
+                // This one times out too; the test is about the second caller
+            }
+        });
+        assertTrue(encoder.started.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        ServiceBusyException busy = assertThrows(ServiceBusyException.class, () -> service.encode("second"));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs >= 90 && waitedMs < 2000, "waited " + waitedMs + " ms");
+        assertEquals(1, busy.getRetryAfterSeconds());
+    }
+
+    @Test
+    void needsRehashWhenWorkFactorDiffers() {
+        start(1, 1, 1000);
+
+        assertFalse(service.needsRehash("$2a$10$abcdefghijklmnopqrstuuN1sR9iQ7HJ2xkFz6dOWfXyFwGZp1hy"));
+        assertTrue(service.needsRehash("$2a$12$abcdefghijklmnopqrstuuN1sR9iQ7HJ2xkFz6dOWfXyFwGZp1hy"));
+        assertTrue(service.needsRehash("$2b$08$abcdefghijklmnopqrstuuN1sR9iQ7HJ2xkFz6dOWfXyFwGZp1hy"));
+        assertFalse(service.needsRehash("plain-text"));
+        assertFalse(service.needsRehash(null));
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.bcrypt.queue.depth").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "request was never queued");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.skillforge.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FileStreamingServiceTest {
+
+    private static final String CONTENT = "0123456789";
+    private static final String ETAG = "\"abc123\"";
+
+    @Mock
+    private AppMetrics appMetrics;
+
+    @InjectMocks
+    private FileStreamingService fileStreamingService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(fileStreamingService, "sendfileMinBytes", 0L);
+        file = Files.writeString(tempDir.resolve("notes.pdf"), CONTENT, StandardCharsets.US_ASCII);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        return serve(request, 0, true);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request, long maxOpenRangeBytes, boolean sendfile)
+            throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileStreamingService.serve(request, response, file, "abc123", "application/pdf", null, "resource",
+                maxOpenRangeBytes, sendfile);
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/files/1");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+
+    @Test
+    void servesWholeFileWithStrongEtag() throws IOException {
+        MockHttpServletResponse response = serve(get(null));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(CONTENT, response.getContentAsString());
+        verify(appMetrics).recordDownload("resource", 10);
+    }
+
+    @Test
+    void matchingIfNoneMatchGivesNotModified() throws IOException {
+        MockHttpServletRequest request = get(null);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + ETAG);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        verify(appMetrics, never()).recordDownload(anyString(), anyLong());
+    }
+
+    @Test
+    void servesClosedRange() throws IOException {
+        MockHttpServletResponse response = serve(get("bytes=2-5"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void servesSuffixRangeAndClampsEndToFile() throws IOException {
+        assertEquals("789", serve(get("bytes=-3")).getContentAsString());
+        assertEquals("89", serve(get("bytes=8-100")).getContentAsString());
+        assertEquals(CONTENT, serve(get("bytes=-50")).getContentAsString());
+    }
+
+    @Test
+    void capsOpenEndedRange() throws IOException {
+        MockHttpServletResponse response = serve(get("bytes=2-"), 4, true);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws IOException {
+        MockHttpServletResponse response = serve(get("bytes=10-"));
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(416, serve(get("bytes=-0")).getStatus());
+    }
+
+    @Test
+    void malformedInvertedOrMultipleRangesGetWholeFile() throws IOException {
+        for (String range : new String[]{"bytes=abc", "bytes=5-2", "bytes=-", "bytes=1-2,4-5", "items=0-1",
+                "bytes=99999999999999999999-"}) {
+            MockHttpServletResponse response = serve(get(range));
+            assertEquals(200, response.getStatus(), range);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals(CONTENT, response.getContentAsString(), range);
+        }
+    }
+
+    @Test
+    void rangeIsIgnoredWhenIfRangeIsStale() throws IOException {
+        MockHttpServletRequest stale = get("bytes=2-5");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        MockHttpServletRequest current = get("bytes=2-5");
+        current.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        assertEquals(200, serve(stale).getStatus());
+        assertEquals(206, serve(current).getStatus());
+    }
+
+    @Test
+    void handsBodyToSendfileOnlyWhenAllowed() throws IOException {
+        MockHttpServletRequest request = get("bytes=2-5");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        MockHttpServletResponse response = serve(request, 0, true);
+
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+
+        MockHttpServletRequest held = get("bytes=2-5");
+        held.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        assertEquals("2345", serve(held, 0, false).getContentAsString());
+        assertNull(held.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void missingFileIsNotFound() throws IOException {
+        Files.delete(file);
+
+        assertEquals(404, serve(get(null)).getStatus());
+    }
+}
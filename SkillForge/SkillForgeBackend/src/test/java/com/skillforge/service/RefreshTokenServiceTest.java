@@ -0,0 +1,131 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.RefreshToken;
+import com.skillforge.entity.User;
+import com.skillforge.exception.InvalidTokenException;
+import com.skillforge.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "refreshTokenTtlMs", 60_000L);
+        user = new User();
+        user.setId(7L);
+    }
+
+    private RefreshToken stored(String rawToken, String familyId) {
+        RefreshToken token = new RefreshToken();
+        token.setId(1L);
+        token.setUser(user);
+        token.setTokenHash(sha256(rawToken));
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plusMinutes(5));
+        when(refreshTokenRepository.findByTokenHash(sha256(rawToken))).thenReturn(Optional.of(token));
+        return token;
+    }
+
+    @Test
+    void rotateConsumesTheTokenAndIssuesOneInTheSameFamily() {
+        stored("old-token", "family-1");
+        when(refreshTokenRepository.consume(eq(1L), any())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("old-token");
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertSame(user, rotation.user());
+        assertNotEquals("old-token", rotation.refreshToken());
+        assertEquals("family-1", saved.getValue().getFamilyId());
+        assertEquals(sha256(rotation.refreshToken()), saved.getValue().getTokenHash(), "only the hash is stored");
+        assertTrue(saved.getValue().getExpiresAt().isAfter(LocalDateTime.now()));
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void reusingAConsumedTokenRevokesTheFamily() {
+        stored("old-token", "family-1");
+        when(refreshTokenRepository.consume(eq(1L), any())).thenReturn(0);
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("old-token"));
+
+        assertEquals("Refresh token has already been used", e.getMessage());
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void presentingARevokedTokenRevokesTheFamilyWithoutConsuming() {
+        RefreshToken token = stored("old-token", "family-1");
+        token.setRevokedAt(LocalDateTime.now().minusMinutes(1));
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("old-token"));
+
+        verify(refreshTokenRepository, never()).consume(anyLong(), any());
+        verify(refreshTokenRepository).revokeFamily(eq("family-1"), any());
+    }
+
+    @Test
+    void expiredTokenIsRejectedWithoutRevokingTheFamily() {
+        RefreshToken token = stored("old-token", "family-1");
+        token.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("old-token"));
+
+        assertEquals("Refresh token has expired", e.getMessage());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void unknownOrMissingTokenIsRejected() {
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate("never-issued"));
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate(" "));
+        assertThrows(InvalidTokenException.class, () -> refreshTokenService.rotate(null));
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
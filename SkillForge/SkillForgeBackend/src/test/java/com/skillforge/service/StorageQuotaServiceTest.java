@@ -0,0 +1,138 @@
+package com.skillforge.service;
+
+import com.skillforge.entity.StorageUsage;
+import com.skillforge.exception.StorageQuotaExceededException;
+import com.skillforge.repository.StorageUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StorageQuotaServiceTest {
+
+    private static final long COURSE_QUOTA = 1000;
+    private static final long USER_QUOTA = 5000;
+
+    @Mock
+    private StorageUsageRepository storageUsageRepository;
+
+    @InjectMocks
+    private StorageQuotaService storageQuotaService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(storageQuotaService, "courseQuotaBytes", COURSE_QUOTA);
+        ReflectionTestUtils.setField(storageQuotaService, "userQuotaBytes", USER_QUOTA);
+        ReflectionTestUtils.setField(storageQuotaService, "globalQuotaBytes", 0L);
+    }
+
+    private void used(StorageUsage.Scope scope, Long scopeId, long bytes) {
+        StorageUsage usage = new StorageUsage();
+        usage.setScope(scope);
+        usage.setScopeId(scopeId);
+        usage.setResourceBytes(bytes);
+        lenient().when(storageUsageRepository.findByScopeAndScopeId(scope, scopeId)).thenReturn(Optional.of(usage));
+    }
+
+    @Test
+    void chargeCountsAgainstGlobalCourseAndUserInThatOrder() {
+        when(storageUsageRepository.addUsage(anyString(), anyLong(), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(1);
+
+        storageQuotaService.charge(StorageUsage.Kind.VIDEO, 3L, 9L, 400);
+
+        InOrder order = inOrder(storageUsageRepository);
+        order.verify(storageUsageRepository).addUsage("GLOBAL", 0L, "VIDEO", 400, 1, Long.MAX_VALUE / 2);
+        order.verify(storageUsageRepository).addUsage("COURSE", 3L, "VIDEO", 400, 1, COURSE_QUOTA);
+        order.verify(storageUsageRepository).addUsage("USER", 9L, "VIDEO", 400, 1, USER_QUOTA);
+        verify(storageUsageRepository, never()).createIfMissing(anyString(), anyLong());
+    }
+
+    @Test
+    void chargeCreatesTheCounterOnFirstUpload() {
+        when(storageUsageRepository.addUsage(eq("GLOBAL"), anyLong(), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(1);
+        when(storageUsageRepository.addUsage(eq("COURSE"), eq(3L), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(0, 1);
+
+        assertDoesNotThrow(() -> storageQuotaService.charge(StorageUsage.Kind.RESOURCE, 3L, null, 400));
+
+        verify(storageUsageRepository).createIfMissing("COURSE", 3L);
+        verify(storageUsageRepository, never()).addUsage(eq("USER"), anyLong(), anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void chargeOverCourseQuotaThrowsBeforeTouchingTheUser() {
+        when(storageUsageRepository.addUsage(eq("GLOBAL"), anyLong(), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(1);
+        when(storageUsageRepository.addUsage(eq("COURSE"), eq(3L), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(0);
+
+        StorageQuotaExceededException e = assertThrows(StorageQuotaExceededException.class,
+                () -> storageQuotaService.charge(StorageUsage.Kind.RESOURCE, 3L, 9L, 400));
+
+        assertEquals("This course has reached its storage quota", e.getMessage());
+        verify(storageUsageRepository, never()).addUsage(eq("USER"), anyLong(), anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void creditGivesBytesBackWithoutQuota() {
+        when(storageUsageRepository.addUsage(anyString(), anyLong(), anyString(), anyLong(), anyLong(), anyLong()))
+                .thenReturn(1);
+
+        storageQuotaService.credit(StorageUsage.Kind.SUBMISSION, 3L, 9L, 250L);
+
+        verify(storageUsageRepository).addUsage("COURSE", 3L, "SUBMISSION", -250, -1, Long.MAX_VALUE / 2);
+        verify(storageUsageRepository).addUsage("USER", 9L, "SUBMISSION", -250, -1, Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    void checkQuotaRefusesUploadsThatCannotFit() {
+        used(StorageUsage.Scope.COURSE, 3L, 900);
+        used(StorageUsage.Scope.USER, 9L, 0);
+
+        assertDoesNotThrow(() -> storageQuotaService.checkQuota(3L, 9L, 100));
+        assertThrows(StorageQuotaExceededException.class, () -> storageQuotaService.checkQuota(3L, 9L, 101));
+        // Size unknown until the body is read: only a full quota is refused up front
+        assertDoesNotThrow(() -> storageQuotaService.checkQuota(3L, 9L, -1));
+    }
+
+    @Test
+    void checkQuotaRefusesUnknownSizeWhenQuotaIsFull() {
+        used(StorageUsage.Scope.COURSE, 3L, COURSE_QUOTA);
+
+        StorageQuotaExceededException e = assertThrows(StorageQuotaExceededException.class,
+                () -> storageQuotaService.checkQuota(3L, 9L, -1));
+
+        assertEquals("This course has reached its storage quota", e.getMessage());
+    }
+
+    @Test
+    void nonPositiveQuotaMeansUnlimited() {
+        ReflectionTestUtils.setField(storageQuotaService, "courseQuotaBytes", 0L);
+        ReflectionTestUtils.setField(storageQuotaService, "userQuotaBytes", -1L);
+
+        assertDoesNotThrow(() -> storageQuotaService.checkQuota(3L, 9L, Long.MAX_VALUE / 4));
+        verify(storageUsageRepository, never()).findByScopeAndScopeId(any(), anyLong());
+    }
+}
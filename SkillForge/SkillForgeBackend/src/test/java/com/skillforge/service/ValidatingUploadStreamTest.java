@@ -0,0 +1,117 @@
+package com.skillforge.service;
+
+import com.skillforge.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidatingUploadStreamTest {
+
+    private static final long MB = 1024 * 1024;
+
+    /** Source that counts how much of the upload was actually read */
+    private static class CountingStream extends ByteArrayInputStream {
+        CountingStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        int consumed() {
+            return pos;
+        }
+    }
+
+    private static byte[] upload(String header, int totalLength) {
+        byte[] bytes = new byte[totalLength];
+        Arrays.fill(bytes, (byte) 'x');
+        byte[] head = header.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        return in.readAllBytes();
+    }
+
+    @Test
+    void passesValidPdfThroughUnchanged() throws IOException {
+        byte[] pdf = upload("%PDF-1.7\n", 100_000);
+
+        byte[] read = readAll(new ValidatingUploadStream(new ByteArrayInputStream(pdf), UploadType.PDF, MB, "1MB"));
+
+        assertArrayEquals(pdf, read);
+    }
+
+    @Test
+    void rejectsWrongMagicBytesWithoutReadingTheRest() {
+        CountingStream source = new CountingStream(upload("PK\u0003\u0004 zip", (int) (4 * MB)));
+        ValidatingUploadStream in = new ValidatingUploadStream(source, UploadType.PDF, 10 * MB, "10MB");
+
+        InvalidRequestException e = assertThrows(InvalidRequestException.class,
+                () -> in.transferTo(OutputStream.nullOutputStream()));
+
+        assertEquals("File content is not a valid PDF file", e.getMessage());
+        assertTrue(source.consumed() <= 16 * 1024, "read " + source.consumed() + " bytes");
+    }
+
+    @Test
+    void checksHeaderAcrossSmallReads() throws IOException {
+        ValidatingUploadStream in = new ValidatingUploadStream(
+                new ByteArrayInputStream(upload("%PDX-1.7", 64)), UploadType.PDF, MB, "1MB");
+        for (int i = 0; i < 4; i++) {
+            in.read();
+        }
+
+        assertThrows(InvalidRequestException.class, () -> in.read(new byte[8], 0, 8));
+    }
+
+    @Test
+    void recognisesVideoContainers() throws IOException {
+        byte[] mp4 = upload("\0\0\0 ftypisom", 64);
+        byte[] webm = upload("\u001AE\u00DF\u00A3", 64);
+        byte[] avi = upload("RIFF\0\0\0\0AVI ", 64);
+
+        for (byte[] video : new byte[][]{mp4, webm, avi}) {
+            readAll(new ValidatingUploadStream(new ByteArrayInputStream(video), UploadType.VIDEO, MB, "1MB"));
+        }
+        assertThrows(InvalidRequestException.class, () -> readAll(new ValidatingUploadStream(
+                new ByteArrayInputStream(upload("%PDF-1.7", 64)), UploadType.VIDEO, MB, "1MB")));
+    }
+
+    @Test
+    void rejectsUploadsOverTheLimitAsSoonAsTheyCrossIt() {
+        CountingStream source = new CountingStream(upload("%PDF-1.7", (int) (3 * MB)));
+        ValidatingUploadStream in = new ValidatingUploadStream(source, UploadType.PDF, MB, "1MB");
+
+        InvalidRequestException e = assertThrows(InvalidRequestException.class,
+                () -> in.transferTo(OutputStream.nullOutputStream()));
+
+        assertEquals("File size must not exceed 1MB", e.getMessage());
+        assertTrue(source.consumed() < 2 * MB, "read " + source.consumed() + " bytes");
+    }
+
+    @Test
+    void checksShortFilesAtEndOfStream() throws IOException {
+        assertEquals(6, readAll(new ValidatingUploadStream(
+                new ByteArrayInputStream("%PDF-1".getBytes(StandardCharsets.US_ASCII)), UploadType.PDF, MB, "1MB")).length);
+        assertThrows(InvalidRequestException.class, () -> readAll(new ValidatingUploadStream(
+                new ByteArrayInputStream("%PD".getBytes(StandardCharsets.US_ASCII)), UploadType.PDF, MB, "1MB")));
+    }
+
+    @Test
+    void rejectsEmptyUpload() {
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> readAll(
+                new ValidatingUploadStream(new ByteArrayInputStream(new byte[0]), UploadType.PDF, MB, "1MB")));
+
+        assertEquals("File is required", e.getMessage());
+    }
+}